@@ -0,0 +1,56 @@
+package com.highestqualitygames.tiledemo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.badlogic.gdx.utils.Array;
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.Assets.Worker;
+
+/*
+One frame of Board.draw for a tile board with a worker on every other cell, against
+a CountingBatch. With the GC profiler, gc.alloc.rate.norm should be 0 here.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardDrawBenchmark {
+	@Param({ "10", "100", "1000" })
+	int rows;
+
+	@Param({ "5", "9" })
+	int cols;
+
+	Board<Tile, Worker> board;
+	CountingBatch batch;
+
+	@Setup
+	public void setup(){
+		final Tile[] tiles = Tile.values();
+
+		board = new Board<Tile, Worker>(cols, rows, 200f, 50f, "bench"){
+			Tile tileAt(int row, int col){
+				return tiles[1 + (row + col) % (tiles.length - 1)];
+			}
+
+			void piecesAt(int row, int col, Array<Worker> out){
+				if((row + col) % 2 == 0)
+					out.add(Worker.Purple);
+			}
+		};
+
+		batch = new CountingBatch();
+	}
+
+	@Benchmark
+	public int draw(){
+		batch.reset();
+		board.draw(batch, 1f);
+		return batch.draws;
+	}
+}
@@ -0,0 +1,79 @@
+package com.highestqualitygames.tiledemo;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+
+/*
+A Batch that draws nothing and just counts what it's asked to do, so Board.draw
+can run (and be measured) without a GL context.
+
+textureSwitches and shaderChanges are what would make a SpriteBatch flush: each is
+one more render call than a frame drawn in a single batch.
+ */
+
+class CountingBatch implements Batch {
+	int draws, colorChanges, flushes, textureSwitches, shaderChanges;
+	Texture texture;
+	final Color color = new Color(1, 1, 1, 1);
+	final Matrix4 projection = new Matrix4(), transform = new Matrix4();
+	boolean blending = true;
+
+	void reset(){
+		draws = colorChanges = flushes = textureSwitches = shaderChanges = 0;
+		texture = null;
+	}
+
+	public void begin(){}
+	public void end(){}
+	public void dispose(){}
+	public void flush(){ flushes++; }
+
+	public void setColor(Color tint){ color.set(tint); colorChanges++; }
+	public void setColor(float r, float g, float b, float a){ color.set(r, g, b, a); colorChanges++; }
+	public void setColor(float packed){ colorChanges++; }
+	public Color getColor(){ return color; }
+
+	public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX,
+			float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY){ count(texture, 1); }
+	public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth,
+			int srcHeight, boolean flipX, boolean flipY){ count(texture, 1); }
+	public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight){ count(texture, 1); }
+	public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2){ count(texture, 1); }
+	public void draw(Texture texture, float x, float y){ count(texture, 1); }
+	public void draw(Texture texture, float x, float y, float width, float height){ count(texture, 1); }
+	public void draw(Texture texture, float[] spriteVertices, int offset, int count){ count(texture, count / 20); }
+	public void draw(TextureRegion region, float x, float y){ count(region); }
+	public void draw(TextureRegion region, float x, float y, float width, float height){ count(region); }
+	public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation){ count(region); }
+	public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+			float scaleX, float scaleY, float rotation, boolean clockwise){ count(region); }
+
+	public void disableBlending(){ blending = false; }
+	public void enableBlending(){ blending = true; }
+	public void setBlendFunction(int srcFunc, int dstFunc){}
+	public int getBlendSrcFunc(){ return 0; }
+	public int getBlendDstFunc(){ return 0; }
+	public boolean isBlendingEnabled(){ return blending; }
+
+	public Matrix4 getProjectionMatrix(){ return projection; }
+	public Matrix4 getTransformMatrix(){ return transform; }
+	public void setProjectionMatrix(Matrix4 m){ projection.set(m); }
+	public void setTransformMatrix(Matrix4 m){ transform.set(m); }
+	public void setShader(ShaderProgram shader){ shaderChanges++; }
+
+	void count(Texture t, int quads){
+		draws += quads;
+		if(t != texture) textureSwitches++;
+		texture = t;
+	}
+
+	// Without Assets loaded (the benchmarks) every region is null
+	void count(TextureRegion region){
+		count(region == null ? null : region.getTexture(), 1);
+	}
+}
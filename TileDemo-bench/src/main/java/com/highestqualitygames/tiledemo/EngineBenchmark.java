@@ -0,0 +1,73 @@
+package com.highestqualitygames.tiledemo;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+GameEngine rules: queue shifting, legal move generation and whole random games.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+	@Param({ "4" })
+	int players;
+
+	@Param({ "45", "450" })
+	int queueSize;
+
+	GameEngine start;
+	int[] moves;
+	Random random;
+	long seed;
+
+	@Setup
+	public void setup(){
+		start = new GameEngine(players, queueSize, 1);
+		moves = new int[start.maxMoves()];
+		random = new Random(1);
+	}
+
+	@State(Scope.Thread)
+	public static class AfterTileChoice {
+		GameEngine engine;
+
+		// A fresh queue with the front picked over, as at the end of a tile choice round
+		@Setup(Level.Invocation)
+		public void setup(EngineBenchmark b){
+			engine = new GameEngine(b.start);
+			for(int p = 0; p < b.players; p++){
+				engine.queue.take(p + (p & 1));
+			}
+		}
+	}
+
+	@Benchmark
+	public int shiftTileQueue(AfterTileChoice s){
+		s.engine.shiftTileQueue();
+		return s.engine.queueSize();
+	}
+
+	@Benchmark
+	public int availableIndices(){
+		return start.legalMoves(moves);
+	}
+
+	// Scored in games per second, not the class's microseconds per call
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@BenchmarkMode(Mode.Throughput)
+	public int randomGame(){
+		GameEngine e = new GameEngine(players, queueSize, seed++);
+		while(!e.isOver()){
+			e.apply(e.randomMove(random));
+		}
+		return e.player(0).score;
+	}
+}
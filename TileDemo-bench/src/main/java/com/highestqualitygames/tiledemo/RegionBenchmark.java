@@ -0,0 +1,81 @@
+package com.highestqualitygames.tiledemo;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+Role scoring: building the region index as tiles and workers go down, and the
+"regions of tile T with player P's worker" queries scoring makes.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionBenchmark {
+	@Param({ "10", "100", "1000" })
+	int rows;
+
+	@Param({ "5", "9" })
+	int cols;
+
+	int players;
+	byte[] tiles;
+	int[] workerCells, workerPlayers;
+	RegionIndex index;
+
+	@Setup
+	public void setup(){
+		players = cols - 1;
+		Random r = new Random(rows * 31 + cols);
+
+		tiles = new byte[rows * cols];
+		for(int i = 0; i < tiles.length; i++){
+			tiles[i] = (byte) (r.nextInt(GameEngine.NUM_TILE_TYPES - 1) + 1);
+		}
+
+		// About as many workers as a real game puts down
+		workerCells = new int[rows * 2];
+		workerPlayers = new int[workerCells.length];
+		for(int i = 0; i < workerCells.length; i++){
+			workerCells[i] = r.nextInt(tiles.length);
+			workerPlayers[i] = r.nextInt(players);
+		}
+
+		index = build();
+	}
+
+	RegionIndex build(){
+		RegionIndex ri = new RegionIndex(cols, players, GameEngine.NUM_TILE_TYPES, 16);
+
+		for(int i = 0; i < tiles.length; i++){
+			ri.placeTile(i / cols, i % cols, tiles[i]);
+		}
+		for(int i = 0; i < workerCells.length; i++){
+			ri.placeWorker(workerCells[i] / cols, workerCells[i] % cols, workerPlayers[i]);
+		}
+
+		return ri;
+	}
+
+	@Benchmark
+	public RegionIndex buildIndex(){
+		return build();
+	}
+
+	// What a full role round of scoring asks: every player, every tile type
+	@Benchmark
+	public int countPlayerRegions(){
+		int total = 0;
+		for(int p = 0; p < players; p++){
+			for(int t = 1; t < GameEngine.NUM_TILE_TYPES; t++){
+				total += index.regionsWithWorker(p, t);
+			}
+		}
+		return total;
+	}
+}
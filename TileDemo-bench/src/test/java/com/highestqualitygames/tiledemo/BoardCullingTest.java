@@ -0,0 +1,109 @@
+package com.highestqualitygames.tiledemo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Container;
+import com.badlogic.gdx.scenes.scene2d.ui.ScrollPane;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Scaling;
+import com.badlogic.gdx.utils.viewport.ScalingViewport;
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.Assets.Worker;
+
+/*
+A tall Board in a ScrollPane a few tiles high should only hand the batch the quads
+for the cells in the pane's window - a tile and a worker each here - wherever it's
+scrolled to, whether it's the pane's widget or (like GameScreen's) nested below it.
+ */
+
+public class BoardCullingTest {
+	static final int WIDE = 5, HIGH = 100;
+	static final float TILE = 50f;
+
+	CountingBatch batch;
+	Stage stage;
+	Board<Tile, Worker> board;
+
+	@Before
+	public void setup(){
+		Headless.install();
+
+		batch = new CountingBatch();
+		stage = new Stage(new ScalingViewport(Scaling.stretch, Headless.WIDTH, Headless.HEIGHT), batch);
+
+		board = new Board<Tile, Worker>(WIDE, HIGH, TILE, TILE / 4, "test"){
+			Tile tileAt(int row, int col){
+				return Tile.Field;
+			}
+
+			void piecesAt(int row, int col, Array<Worker> out){
+				out.add(Worker.Purple);
+			}
+		};
+	}
+
+	// A pane showing four whole rows of the board
+	ScrollPane pane(Actor widget){
+		ScrollPane p = new ScrollPane(widget);
+		p.setSize(WIDE * TILE, 4 * TILE);
+		stage.addActor(p);
+		return p;
+	}
+
+	int draw(){
+		batch.reset();
+		stage.draw();
+		return batch.draws;
+	}
+
+	void scroll(ScrollPane p, float y){
+		p.setScrollY(y);
+		p.updateVisualScroll();
+	}
+
+	@Test
+	public void unculledDrawsEverything(){
+		stage.addActor(board);
+
+		assertEquals(WIDE * HIGH * 2, draw());
+	}
+
+	@Test
+	public void drawsOnlyThePaneWindow(){
+		ScrollPane p = pane(board);
+
+		// Scrolled to the top, the last four rows
+		assertEquals(4 * WIDE * 2, draw());
+		assertEquals(HIGH - 4, board.rowBegin);
+		assertEquals(HIGH, board.rowEnd);
+
+		// Half way through a row, there's a fifth partly in view
+		scroll(p, 20.5f * TILE);
+		assertEquals(5 * WIDE * 2, draw());
+		assertEquals(HIGH - 25, board.rowBegin);
+		assertEquals(HIGH - 20, board.rowEnd);
+
+		scroll(p, p.getMaxY());
+		assertEquals(4 * WIDE * 2, draw());
+		assertEquals(0, board.rowBegin);
+		assertEquals(4, board.rowEnd);
+	}
+
+	@Test
+	public void drawsOnlyThePaneWindowWhenNested(){
+		ScrollPane p = pane(new Container<Board<Tile, Worker>>(board));
+
+		assertEquals(4 * WIDE * 2, draw());
+		assertEquals(HIGH - 4, board.rowBegin);
+
+		scroll(p, 20.5f * TILE);
+		assertEquals(5 * WIDE * 2, draw());
+		assertEquals(HIGH - 25, board.rowBegin);
+		assertEquals(HIGH - 20, board.rowEnd);
+	}
+}
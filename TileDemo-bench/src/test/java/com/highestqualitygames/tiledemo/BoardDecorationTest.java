@@ -0,0 +1,136 @@
+package com.highestqualitygames.tiledemo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.Assets.Worker;
+import com.highestqualitygames.tiledemo.Board.TileDecoration;
+
+/*
+Board asks its Selection for each cell's decoration once, when it's set, and draws
+from the cached mask until something invalidates it - a click on a selectable cell,
+invalidateDecorations() or the board changing size. Without Assets.tint every
+decorated cell is an overlay quad on top of its tile, so the draw count shows what
+the mask holds.
+ */
+
+public class BoardDecorationTest {
+	static final int WIDE = 4, HIGH = 3;
+
+	CountingBatch batch;
+	Board<Tile, Worker> board;
+
+	// Highlights column picked, which a click on row 0 changes; asks counts the questions
+	class Picker extends Board.Selection {
+		int picked = 0, asks = 0;
+
+		boolean tileSelectable(int row, int col){
+			return row == 0;
+		}
+
+		void selected(int row, int col){
+			picked = col;
+		}
+
+		TileDecoration tileDecoration(int row, int col){
+			asks++;
+			return col == picked ? TileDecoration.Highlight : TileDecoration.None;
+		}
+	}
+
+	@Before
+	public void setup(){
+		// Overlays, not tinting
+		Assets.tint = null;
+
+		batch = new CountingBatch();
+
+		board = new Board<Tile, Worker>(WIDE, HIGH, 50f, 12.5f, "test"){
+			Tile tileAt(int row, int col){
+				return Tile.Field;
+			}
+		};
+	}
+
+	int draw(){
+		batch.reset();
+		board.draw(batch, 1f);
+		return batch.draws;
+	}
+
+	@Test
+	public void undecoratedDrawsTilesOnly(){
+		assertEquals(WIDE * HIGH, draw());
+	}
+
+	@Test
+	public void asksOncePerCell(){
+		Picker p = new Picker();
+		board.setSelection(p);
+
+		// One column highlighted
+		assertEquals(WIDE * HIGH + HIGH, draw());
+		assertEquals(WIDE * HIGH, p.asks);
+
+		draw();
+		draw();
+		assertEquals(WIDE * HIGH, p.asks);
+	}
+
+	@Test
+	public void clickRebuilds(){
+		Picker p = new Picker();
+		board.setSelection(p);
+		draw();
+
+		// Row 0, column 2
+		board.click(2.5f * 50f, 0.5f * 50f);
+		assertEquals(2, p.picked);
+		assertEquals(WIDE * HIGH + HIGH, draw());
+		assertEquals(2 * WIDE * HIGH, p.asks);
+
+		// Not selectable, so nothing changes
+		board.click(2.5f * 50f, 1.5f * 50f);
+		draw();
+		assertEquals(2 * WIDE * HIGH, p.asks);
+	}
+
+	@Test
+	public void changesBehindBoardsBackNeedInvalidating(){
+		Picker p = new Picker();
+		board.setSelection(p);
+		draw();
+
+		// Nothing highlighted any more, but Board can't know
+		p.picked = -1;
+		assertEquals(WIDE * HIGH + HIGH, draw());
+		assertEquals(WIDE * HIGH, p.asks);
+
+		board.invalidateDecorations();
+		assertEquals(WIDE * HIGH, draw());
+		assertEquals(2 * WIDE * HIGH, p.asks);
+	}
+
+	@Test
+	public void resizeRebuilds(){
+		Picker p = new Picker();
+		board.setSelection(p);
+		draw();
+
+		board.resizeBoard(WIDE, HIGH + 2);
+		assertEquals(WIDE * (HIGH + 2) + HIGH + 2, draw());
+		assertEquals(WIDE * HIGH + WIDE * (HIGH + 2), p.asks);
+	}
+
+	@Test
+	public void clearingSelectionDropsDecorations(){
+		board.setSelection(new Picker());
+		draw();
+
+		board.setSelection(null);
+		assertEquals(WIDE * HIGH, draw());
+	}
+}
@@ -0,0 +1,201 @@
+package com.highestqualitygames.tiledemo;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.Assets.Worker;
+
+/*
+A retained Board takes its frozen rows out of the batch: they're baked into
+SpriteCache pages, one draw call each, and only the page still filling up is baked
+again as more rows freeze. Zoomed out, they're drawn into the overview FrameBuffer
+instead - only the newly frozen rows, unless invalidateOverview() says its contents
+are gone - and go on screen as one quad.
+
+Which rows Board reads (tileAt) shows what it baked or drew into the buffer; the
+batch and Headless's GL call counts show what it drew.
+ */
+
+public class BoardRetainedTest {
+	static final int WIDE = 5, HIGH = 40;
+	// A tile and a worker in every cell
+	static final int ROW_QUADS = WIDE * 2;
+
+	CountingBatch batch;
+	Board<Tile, Worker> board;
+	int frozen;
+	// Rows tileAt was asked about since the last draw()
+	final BitSet read = new BitSet();
+
+	@Before
+	public void setup(){
+		Headless.install();
+
+		// SpriteCache wants real regions
+		Assets.init();
+		Assets.acquire();
+		Assets.manager.finishLoading();
+		Assets.loaded();
+
+		batch = new CountingBatch();
+
+		board = new Board<Tile, Worker>(WIDE, HIGH, 50f, 12.5f, "test"){
+			Tile tileAt(int row, int col){
+				read.set(row);
+				return Tile.Field;
+			}
+
+			void piecesAt(int row, int col, Array<Worker> out){
+				out.add(Worker.Purple);
+			}
+
+			int frozenRows(){
+				return frozen;
+			}
+		};
+		board.setRetained(true);
+	}
+
+	@After
+	public void teardown(){
+		board.dispose();
+		Assets.release();
+		Assets.manager.dispose();
+	}
+
+	int draw(){
+		batch.reset();
+		read.clear();
+		Headless.glCalls.clear();
+		board.draw(batch, 1f);
+		return batch.draws;
+	}
+
+	// Frozen rows count down from the top of the board
+	BitSet frozenRows(int from, int to){
+		BitSet rows = new BitSet();
+		rows.set(HIGH - to, HIGH - from);
+		return rows;
+	}
+
+	BitSet liveRows(){
+		BitSet rows = new BitSet();
+		rows.set(0, HIGH - frozen);
+		return rows;
+	}
+
+	BitSet or(BitSet a, BitSet b){
+		a.or(b);
+		return a;
+	}
+
+	@Test
+	public void nothingFrozenDrawsEverything(){
+		assertEquals(HIGH * ROW_QUADS, draw());
+		assertEquals(0, Headless.glCalls("glDrawElements"));
+	}
+
+	@Test
+	public void frozenRowsArePages(){
+		frozen = 20;
+
+		// Two pages: sixteen rows and four
+		assertEquals((HIGH - frozen) * ROW_QUADS, draw());
+		assertEquals(2, Headless.glCalls("glDrawElements"));
+		assertEquals(or(liveRows(), frozenRows(0, 20)), read);
+
+		// Baked once
+		draw();
+		assertEquals(2, Headless.glCalls("glDrawElements"));
+		assertEquals(liveRows(), read);
+	}
+
+	@Test
+	public void onlyTheFillingPageRebakes(){
+		frozen = 20;
+		draw();
+
+		frozen = 24;
+		assertEquals((HIGH - frozen) * ROW_QUADS, draw());
+		assertEquals(2, Headless.glCalls("glDrawElements"));
+		assertEquals(or(liveRows(), frozenRows(16, 24)), read);
+
+		// A third page
+		frozen = 36;
+		draw();
+		assertEquals(3, Headless.glCalls("glDrawElements"));
+		assertEquals(or(liveRows(), frozenRows(16, 36)), read);
+	}
+
+	@Test
+	public void zoomedOutIsOneOverviewQuad(){
+		frozen = 20;
+		board.setTileSize(20f);
+
+		// The frozen rows into the buffer, then it and the live rows on screen
+		assertEquals(frozen * ROW_QUADS + 1 + (HIGH - frozen) * ROW_QUADS, draw());
+		assertEquals(1, Headless.glCalls("glCheckFramebufferStatus"));
+		assertEquals(0, Headless.glCalls("glDrawElements"));
+
+		// Nothing new to draw in
+		assertEquals(1 + (HIGH - frozen) * ROW_QUADS, draw());
+		assertEquals(0, Headless.glCalls("glBindFramebuffer"));
+		assertEquals(liveRows(), read);
+	}
+
+	@Test
+	public void overviewDrawsInNewlyFrozenRows(){
+		frozen = 20;
+		board.setTileSize(20f);
+		draw();
+
+		frozen = 24;
+		assertEquals(4 * ROW_QUADS + 1 + (HIGH - frozen) * ROW_QUADS, draw());
+		assertEquals(or(liveRows(), frozenRows(20, 24)), read);
+	}
+
+	@Test
+	public void invalidatedOverviewIsRedrawn(){
+		frozen = 20;
+		board.setTileSize(20f);
+		draw();
+
+		// Say the GL context went
+		board.invalidateOverview();
+		assertEquals(frozen * ROW_QUADS + 1 + (HIGH - frozen) * ROW_QUADS, draw());
+		assertEquals(or(liveRows(), frozenRows(0, 20)), read);
+		assertEquals(1, Headless.glCalls("glClear"));
+
+		draw();
+		assertEquals(liveRows(), read);
+	}
+
+	@Test
+	public void overviewPassRestoresTheBatch(){
+		frozen = 20;
+		board.setTileSize(20f);
+
+		Matrix4 projection = new Matrix4().setToOrtho2D(0, 0, Headless.WIDTH, Headless.HEIGHT);
+		Matrix4 transform = new Matrix4().translate(10, 20, 0);
+		batch.setProjectionMatrix(projection);
+		batch.setTransformMatrix(transform);
+
+		// Letterboxed, which FrameBuffer.end() knows nothing about
+		int[] letterbox = { 40, 0, 720, 480 };
+		System.arraycopy(letterbox, 0, Headless.viewport, 0, 4);
+
+		draw();
+		assertTrue(Headless.glCalls("glViewport") > 1);
+		assertArrayEquals(letterbox, Headless.viewport);
+		assertArrayEquals(projection.val, batch.getProjectionMatrix().val, 0f);
+		assertArrayEquals(transform.val, batch.getTransformMatrix().val, 0f);
+	}
+}
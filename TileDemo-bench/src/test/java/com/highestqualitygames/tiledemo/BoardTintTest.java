@@ -0,0 +1,109 @@
+package com.highestqualitygames.tiledemo;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.Assets.Worker;
+import com.highestqualitygames.tiledemo.Board.TileDecoration;
+
+/*
+With Assets.tint, a decorated Board switches to it and back once per draw and tints
+its tiles in the same quads - only cells with no tile still get an overlay. An
+undecorated one leaves the batch's shader alone. The uniforms are all set on every
+draw, since a recompile after losing the GL context zeroes them.
+ */
+
+public class BoardTintTest {
+	static final int WIDE = 4, HIGH = 3;
+
+	CountingBatch batch;
+	Board<Tile, Worker> board;
+	// Every uniform set and how many times
+	final Map<String, Integer> set = new HashMap<String, Integer>();
+	final Color lastColor = new Color();
+
+	@Before
+	public void setup(){
+		Headless.install();
+
+		// Records its uniforms rather than passing them on to GL
+		Assets.tint = new ShaderProgram(Board.TINT_VERTEX, Board.TINT_FRAGMENT){
+			public void setUniformf(String name, float a, float b, float c){
+				Integer n = set.get(name);
+				set.put(name, n == null ? 1 : n + 1);
+				if(name.equals("u_color"))
+					lastColor.set(a, b, c, 1f);
+			}
+		};
+
+		batch = new CountingBatch();
+
+		// Row 2, column 0 is empty
+		board = new Board<Tile, Worker>(WIDE, HIGH, 50f, 12.5f, "test"){
+			Tile tileAt(int row, int col){
+				return row == 2 && col == 0 ? Tile.Empty : Tile.Field;
+			}
+		};
+	}
+
+	@After
+	public void teardown(){
+		Assets.tint = null;
+	}
+
+	int draw(){
+		batch.reset();
+		board.draw(batch, 1f);
+		return batch.draws;
+	}
+
+	// Column 0 highlighted
+	void decorate(){
+		board.setSelection(new Board.Selection(){
+			TileDecoration tileDecoration(int row, int col){
+				return col == 0 ? TileDecoration.Highlight : TileDecoration.None;
+			}
+		});
+	}
+
+	@Test
+	public void undecoratedKeepsTheShader(){
+		assertEquals(WIDE * HIGH - 1, draw());
+		assertEquals(0, batch.shaderChanges);
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void decoratedSwitchesShaderTwice(){
+		decorate();
+
+		// The empty cell's overlay is the only extra quad
+		assertEquals(WIDE * HIGH, draw());
+		assertEquals(2, batch.shaderChanges);
+
+		// The decoration rode in the colour's red channel; it's plain again after
+		assertEquals(Color.WHITE, batch.color);
+	}
+
+	@Test
+	public void uniformsSetEveryDraw(){
+		decorate();
+		board.setColor(0.5f, 0.25f, 1f, 1f);
+
+		draw();
+		draw();
+		assertEquals(Integer.valueOf(2), set.get("u_color"));
+		assertEquals(Integer.valueOf(2), set.get("u_highlight"));
+		assertEquals(Integer.valueOf(2), set.get("u_select"));
+		assertEquals(new Color(0.5f, 0.25f, 1f, 1f), lastColor);
+	}
+}
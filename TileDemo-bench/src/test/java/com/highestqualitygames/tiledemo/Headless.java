@@ -0,0 +1,119 @@
+package com.highestqualitygames.tiledemo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/*
+Just enough of a libgdx backend to lay out and draw scene2d into a CountingBatch
+without a window. Every call answers zero, false or null, except the screen size
+and internal files. Those are relative to the working directory, as on the desktop,
+which the pom sets to the Android project's assets.
+
+GL also says yes where it has to for things to be made at all: objects get handles,
+shaders compile and link, and framebuffers are complete. It keeps the viewport, and
+counts its calls by name in glCalls, so SpriteCache and FrameBuffer work - which
+never go near the Batch - can be checked.
+ */
+
+class Headless {
+	static final int WIDTH = 800, HEIGHT = 480;
+
+	static final Map<String, Integer> glCalls = new HashMap<String, Integer>();
+	// x y width height, as glViewport last set it
+	static final int[] viewport = new int[4];
+
+	static void install(){
+		GdxNativesLoader.load();
+
+		Gdx.app = stub(Application.class);
+		Gdx.graphics = stub(Graphics.class);
+		Gdx.files = stub(Files.class);
+		Gdx.gl = Gdx.gl20 = gl();
+		glCalls.clear();
+		viewport[0] = viewport[1] = 0;
+		viewport[2] = WIDTH;
+		viewport[3] = HEIGHT;
+	}
+
+	static int glCalls(String name){
+		Integer n = glCalls.get(name);
+		return n == null ? 0 : n;
+	}
+
+	static GL20 gl(){
+		final GL20 zero = stub(GL20.class);
+
+		return (GL20) Proxy.newProxyInstance(Headless.class.getClassLoader(), new Class<?>[]{ GL20.class }, new InvocationHandler(){
+			public Object invoke(Object proxy, Method m, Object[] args) throws Exception {
+				String name = m.getName();
+				glCalls.put(name, glCalls(name) + 1);
+
+				if(name.equals("glCreateShader") || name.equals("glCreateProgram") || 
+						(name.startsWith("glGen") && m.getReturnType() == int.class))
+					return 1;
+				if(name.startsWith("glGen") && args.length == 2){
+					IntBuffer handles = (IntBuffer) args[1];
+					for(int i = 0; i < (Integer) args[0]; i++) handles.put(handles.position() + i, 1);
+					return null;
+				}
+				if(name.equals("glGetShaderiv") || name.equals("glGetProgramiv")){
+					int pname = (Integer) args[1];
+					((IntBuffer) args[2]).put(0, pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS ? 1 : 0);
+					return null;
+				}
+				if(name.equals("glCheckFramebufferStatus"))
+					return GL20.GL_FRAMEBUFFER_COMPLETE;
+				if(name.equals("glViewport")){
+					for(int i = 0; i < 4; i++) viewport[i] = (Integer) args[i];
+					return null;
+				}
+				if(name.equals("glGetIntegerv") && (Integer) args[0] == GL20.GL_VIEWPORT){
+					((IntBuffer) args[1]).put(viewport, 0, 4).rewind();
+					return null;
+				}
+
+				return m.invoke(zero, args);
+			}
+		});
+	}
+
+	static <T> T stub(final Class<T> type){
+		return type.cast(Proxy.newProxyInstance(Headless.class.getClassLoader(), new Class<?>[]{ type }, new InvocationHandler(){
+			public Object invoke(Object proxy, Method m, Object[] args){
+				String name = m.getName();
+				// Textures and shaders are kept in maps keyed by Gdx.app
+				if(name.equals("equals")) return proxy == args[0];
+				if(name.equals("hashCode")) return System.identityHashCode(proxy);
+				if(name.equals("toString")) return type.getSimpleName();
+				if(name.equals("getWidth")) return WIDTH;
+				if(name.equals("getHeight")) return HEIGHT;
+				if(name.equals("internal")) return new FileHandle((String) args[0]);
+				return zero(m.getReturnType());
+			}
+		}));
+	}
+
+	static Object zero(Class<?> c){
+		if(c == boolean.class) return false;
+		if(c == int.class) return 0;
+		if(c == long.class) return 0L;
+		if(c == float.class) return 0f;
+		if(c == double.class) return 0d;
+		if(c == short.class) return (short) 0;
+		if(c == byte.class) return (byte) 0;
+		if(c == char.class) return (char) 0;
+		return null;
+	}
+}
@@ -0,0 +1,136 @@
+package com.highestqualitygames.tiledemo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Scaling;
+import com.badlogic.gdx.utils.viewport.ScalingViewport;
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.Assets.Worker;
+import com.highestqualitygames.tiledemo.Board.TileDecoration;
+import com.highestqualitygames.tiledemo.GameScreen.Player;
+import com.highestqualitygames.tiledemo.GameScreen.PlayerType;
+
+/*
+What the font living in the atlas buys, against the real atlas as Assets loads it:
+player panels (text included) and a tile board with its pieces and decorations all
+sample one texture, so the batch never flushes to switch - one render call.
+
+Decorations tinted by Assets.tint cost a shader switch there and back, so two more.
+Retained pages aren't drawn through the batch at all - each is a SpriteCache draw
+call of its own - and the overview quad samples its FrameBuffer, so they're checked
+in BoardRetainedTest instead.
+ */
+
+public class RenderCallTest {
+	CountingBatch batch;
+	Stage stage;
+	Board<Tile, Worker> board;
+
+	@Before
+	public void setup(){
+		Headless.install();
+
+		Assets.init();
+		Assets.acquire();
+		Assets.manager.finishLoading();
+		Assets.loaded();
+
+		// Into the game a little, so the panels have tiles and scores to show
+		GameEngine engine = new GameEngine(4, 45, 1);
+		Random random = new Random(1);
+		for(int i = 0; i < 12 && !engine.isOver(); i++){
+			engine.apply(engine.randomMove(random));
+		}
+
+		List<Player> players = new ArrayList<Player>();
+		Worker[] workers = { Worker.Purple, Worker.Teal, Worker.Orange, Worker.White };
+		for(int i = 0; i < workers.length; i++){
+			players.add(new Player(workers[i], "Player " + i, PlayerType.LocalCPU));
+		}
+
+		final Tile[] tiles = Tile.values();
+		board = new Board<Tile, Worker>(5, 4, 50f, 12.5f, "test"){
+			Tile tileAt(int row, int col){
+				return tiles[1 + (row + col) % (tiles.length - 1)];
+			}
+
+			void piecesAt(int row, int col, Array<Worker> out){
+				if((row + col) % 2 == 0)
+					out.add(Worker.Purple);
+			}
+		};
+
+		batch = new CountingBatch();
+		stage = new Stage(new ScalingViewport(Scaling.stretch, Headless.WIDTH, Headless.HEIGHT), batch);
+		stage.addActor(new Players(players, engine));
+		board.setPosition(400, 0);
+		stage.addActor(board);
+	}
+
+	@After
+	public void teardown(){
+		Assets.release();
+		Assets.manager.dispose();
+	}
+
+	void draw(){
+		batch.reset();
+		stage.draw();
+	}
+
+	void decorate(){
+		board.setSelection(new Board.Selection(){
+			TileDecoration tileDecoration(int row, int col){
+				return row == 0 ? TileDecoration.Highlight : col == 1 ? TileDecoration.Select : TileDecoration.None;
+			}
+		});
+	}
+
+	@Test
+	public void fontIsInTheAtlas(){
+		assertSame(Assets.manor.getTexture(), Assets.font.getRegion().getTexture());
+		assertSame(Assets.manor.getTexture(), Assets.playerBG.getTexture());
+	}
+
+	@Test
+	public void frameIsOneTexture(){
+		draw();
+
+		assertTrue(batch.draws > 0);
+		assertEquals(1, batch.textureSwitches);
+		assertSame(Assets.manor.getTexture(), batch.texture);
+		assertEquals(0, batch.shaderChanges);
+	}
+
+	@Test
+	public void overlayDecorationsAreOneTexture(){
+		// As if the tint shader didn't compile
+		Assets.tint.dispose();
+		Assets.tint = null;
+		decorate();
+		draw();
+
+		assertEquals(1, batch.textureSwitches);
+		assertEquals(0, batch.shaderChanges);
+	}
+
+	@Test
+	public void tintedDecorationsSwitchShaderTwice(){
+		assertNotNull(Assets.tint);
+		decorate();
+		draw();
+
+		assertEquals(1, batch.textureSwitches);
+		assertEquals(2, batch.shaderChanges);
+	}
+}
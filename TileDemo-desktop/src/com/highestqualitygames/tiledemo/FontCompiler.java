@@ -0,0 +1,173 @@
+package com.highestqualitygames.tiledemo;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+/*
+Repacks a one page BMFont (.fnt plus its page image) so it can go through the
+texture packer with the game's images, for textures.sh before the packer runs.
+
+	FontCompiler <font.fnt> <width> <out.fnt> <out.png>
+
+BMFont pages are mostly empty (libgdx's arial-15 uses 256x87 of a 256x512 page) and
+too wide for the gaps the tiles leave, so the glyphs are shelf packed into a strip
+<width> wide, as short as they'll go. out.fnt is the same font with its glyphs moved;
+Assets loads it against out.png's atlas region, so text and tiles share a texture.
+
+<font.fnt> and its page are read off the classpath if they aren't files, so
+libgdx's own fonts (com/badlogic/gdx/utils/...) work straight from gdx.jar.
+ */
+
+public class FontCompiler {
+	// Between glyphs, as the original
+	static final int SPACING = 1;
+
+	static final Pattern PAGE = Pattern.compile("^page id=(\\d+) file=\"([^\"]*)\"");
+	static final Pattern COMMON = Pattern.compile("scaleW=\\d+ scaleH=\\d+ pages=(\\d+)");
+	static final Pattern CHAR = Pattern.compile("^char id=\\s*(\\d+)\\s+x=\\s*(\\d+)\\s+y=\\s*(\\d+)\\s+width=\\s*(\\d+)\\s+height=\\s*(\\d+)(.*)$");
+
+	static class Glyph {
+		String id, rest;
+		int x, y, width, height;
+		int newX, newY;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 4){
+			System.err.println("FontCompiler <font.fnt> <width> <out.fnt> <out.png>");
+			System.exit(1);
+		}
+
+		int width = Integer.parseInt(args[1]);
+		File outFnt = new File(args[2]), outPng = new File(args[3]);
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(open(args[0]), "UTF-8"));
+		try {
+			for(String line; (line = in.readLine()) != null; ){
+				lines.add(line);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		// Glyphs, and the page they're on
+		String page = null;
+		List<Glyph> glyphs = new ArrayList<Glyph>();
+		for(String line : lines){
+			Matcher m;
+			if((m = COMMON.matcher(line)).find() && !m.group(1).equals("1"))
+				throw new Error("Can only compile one page fonts");
+			if((m = PAGE.matcher(line)).find())
+				page = m.group(2);
+			if((m = CHAR.matcher(line)).find()){
+				Glyph g = new Glyph();
+				g.id = m.group(1);
+				g.x = Integer.parseInt(m.group(2));
+				g.y = Integer.parseInt(m.group(3));
+				g.width = Integer.parseInt(m.group(4));
+				g.height = Integer.parseInt(m.group(5));
+				g.rest = m.group(6);
+				glyphs.add(g);
+			}
+		}
+		if(page == null)
+			throw new Error("No page in " + args[0]);
+
+		String dir = args[0].lastIndexOf('/') < 0 ? "" : args[0].substring(0, args[0].lastIndexOf('/') + 1);
+		InputStream pageIn = open(dir + page);
+		BufferedImage source;
+		try {
+			source = ImageIO.read(pageIn);
+		}
+		finally {
+			pageIn.close();
+		}
+
+		int height = pack(glyphs, width);
+
+		BufferedImage strip = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		for(Glyph g : glyphs){
+			if(g.width == 0 || g.height == 0) continue;
+			strip.setRGB(g.newX, g.newY, g.width, g.height, source.getRGB(g.x, g.y, g.width, g.height, null, 0, g.width), 0, g.width);
+		}
+		ImageIO.write(strip, "png", outPng);
+
+		// Everything as it was, but the page and where the glyphs are
+		PrintWriter out = new PrintWriter(outFnt, "UTF-8");
+		try {
+			int next = 0;
+			for(String line : lines){
+				if(PAGE.matcher(line).find()){
+					line = PAGE.matcher(line).replaceFirst("page id=$1 file=\"" + outPng.getName() + "\"");
+				}
+				else if(COMMON.matcher(line).find()){
+					line = COMMON.matcher(line).replaceFirst("scaleW=" + width + " scaleH=" + height + " pages=1");
+				}
+				else if(CHAR.matcher(line).find()){
+					Glyph g = glyphs.get(next++);
+					line = String.format("char id=%-4s x=%-5d y=%-5d width=%-5d height=%-5d ", g.id, g.newX, g.newY, g.width, g.height) + g.rest.trim();
+				}
+				out.println(line);
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		System.out.println(String.format("%s: %d glyphs in %dx%d", outPng, glyphs.size(), width, height));
+	}
+
+	// Tallest first, left to right in rows. Sets newX, newY, returns the height used.
+	static int pack(List<Glyph> glyphs, int width){
+		List<Glyph> sorted = new ArrayList<Glyph>(glyphs);
+		Collections.sort(sorted, new Comparator<Glyph>(){
+			public int compare(Glyph a, Glyph b){
+				return b.height - a.height;
+			}
+		});
+
+		int x = 0, y = 0, shelf = 0;
+		for(Glyph g : sorted){
+			if(g.width > width)
+				throw new Error("Glyph " + g.id + " is wider than " + width);
+
+			if(x + g.width > width){
+				x = 0;
+				y += shelf;
+				shelf = 0;
+			}
+
+			g.newX = x;
+			g.newY = y;
+			x += g.width + SPACING;
+			shelf = java.lang.Math.max(shelf, g.height + SPACING);
+		}
+		return y + shelf;
+	}
+
+	static InputStream open(String path) throws IOException {
+		if(new File(path).exists())
+			return new FileInputStream(path);
+
+		InputStream in = FontCompiler.class.getClassLoader().getResourceAsStream(path);
+		if(in == null)
+			throw new IOException("Can't find " + path);
+		return in;
+	}
+}
@@ -1,15 +1,25 @@
 package com.highestqualitygames.tiledemo;
 
+import java.lang.management.ManagementFactory;
+
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 
 public class Main {
 	public static void main(String[] args) {
+		// Count startup from when the JVM started, not from here
+		long launch = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1000000L;
+		
 		LwjglApplicationConfiguration cfg = new LwjglApplicationConfiguration();
 		cfg.title = "TileDemo";
 		cfg.width = 854;
 		cfg.height = 480;
+		// GameScreen renders on demand; this caps frames when it does, and how often
+		// the idle loop polls for input (more slowly when the window isn't active)
+		cfg.foregroundFPS = 60;
+		cfg.backgroundFPS = 10;
 		
-		new LwjglApplication(new TileDemoGame(), cfg);
+		// Main [replay log] - plays a log back instead of a new game
+		new LwjglApplication(new TileDemoGame(args.length > 0 ? args[0] : null, launch, new ThreadedBackground()), cfg);
 	}
 }
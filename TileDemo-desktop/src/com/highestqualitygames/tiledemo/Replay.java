@@ -0,0 +1,64 @@
+package com.highestqualitygames.tiledemo;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.highestqualitygames.tiledemo.GameEngine.Phase;
+
+/*
+Headless replay of a GameScreen replay log (replays/*.tdr under the working directory).
+
+	Replay <log> [-v]
+
+Plays the log through a GameEngine at full speed and prints the final position.
+-v prints every move with its phase and player first, for tracking down bug reports.
+To watch it instead, pass the log to Main.
+ */
+
+public class Replay {
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1){
+			System.err.println("Replay <log> [-v]");
+			System.exit(1);
+		}
+
+		boolean verbose = args.length > 1 && args[1].equals("-v");
+
+		InputStream in = new FileInputStream(args[0]);
+		ReplayLog.Reader log;
+		try {
+			log = ReplayLog.Reader.read(in);
+		}
+		finally {
+			in.close();
+		}
+
+		System.out.println(String.format("%d players, queue %d, seed %d", log.numPlayers, log.queueSize, log.seed));
+		for(int p = 0; p < log.numPlayers; p++){
+			System.out.println(String.format("  seat %d: %s", p, GameScreen.PlayerType.values()[log.playerTypes[p]]));
+		}
+
+		long start = System.nanoTime();
+		GameEngine e = log.newEngine();
+
+		while(log.hasNext()){
+			Phase phase = e.phase();
+			int player = e.currentPlayer();
+			int move = log.next();
+
+			if(verbose)
+				System.out.println(String.format("%4d row %-3d %-11s player %d: %d", log.moveNumber, e.lastRow(), phase, player, move));
+
+			e.apply(move);
+		}
+
+		double ms = (System.nanoTime() - start) / 1e6;
+
+		System.out.println(String.format("%d moves in %.2fms, %s", log.moveNumber, ms,
+				e.isOver() ? "game over" : "game unfinished (" + e.phase() + ")"));
+		for(int p = 0; p < log.numPlayers; p++){
+			System.out.println(String.format("  seat %d: %d points", p, e.player(p).score));
+		}
+	}
+}
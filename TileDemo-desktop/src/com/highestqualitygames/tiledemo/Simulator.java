@@ -0,0 +1,213 @@
+package com.highestqualitygames.tiledemo;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.highestqualitygames.tiledemo.GameEngine.Phase;
+
+/*
+Batch balance simulator: plays lots of headless games between random CPU players
+(the TileDemoGame setup - 4 players, 45 tile queue) across every core and writes a
+summary of scores, role picks and game length.
+
+	Simulator [games] [seed] [output file] [threads]
+
+Every game gets its own seed derived from (seed, game number), and statistics are
+integer histograms that just get added together, so results are identical for a
+given seed however the work gets split between threads.
+ */
+
+public class Simulator {
+	static final int NUM_PLAYERS = 4;
+	static final int QUEUE_SIZE = 45;
+
+	// Games per fork-join leaf
+	static final int LEAF_GAMES = 1024;
+
+	// Fixed size histograms keep memory flat however many games run.
+	// The last bin of each counts everything at or above it.
+	static final int SCORE_BINS = 512;
+	static final int LENGTH_BINS = 256;
+
+	// Tied winners split the win, as in Mcts.score(). Counted in 1/WIN_SHARES of a win,
+	// divisible by any number of tied seats up to NUM_PLAYERS, so it stays integer.
+	static final long WIN_SHARES = 12;
+
+	static class Stats {
+		final long[][] score = new long[NUM_PLAYERS][SCORE_BINS];
+		final long[] wins = new long[NUM_PLAYERS]; // in WIN_SHARES
+		final long[] rolePicks = new long[2 * GameEngine.ROLE_COLUMNS];
+		final long[] rounds = new long[LENGTH_BINS];
+		long games;
+
+		void add(Stats o){
+			for(int p = 0; p < NUM_PLAYERS; p++){
+				for(int b = 0; b < SCORE_BINS; b++) score[p][b] += o.score[p][b];
+				wins[p] += o.wins[p];
+			}
+			for(int i = 0; i < rolePicks.length; i++) rolePicks[i] += o.rolePicks[i];
+			for(int b = 0; b < LENGTH_BINS; b++) rounds[b] += o.rounds[b];
+			games += o.games;
+		}
+
+		void record(GameEngine e){
+			int best = Integer.MIN_VALUE, winners = 0;
+			for(int p = 0; p < NUM_PLAYERS; p++){
+				int s = e.player(p).score;
+				score[p][java.lang.Math.min(s, SCORE_BINS - 1)]++;
+				if(s > best){ best = s; winners = 1; }
+				else if(s == best) winners++;
+			}
+			for(int p = 0; p < NUM_PLAYERS; p++){
+				if(e.player(p).score == best) wins[p] += WIN_SHARES / winners;
+			}
+			rounds[java.lang.Math.min(e.lastRow(), LENGTH_BINS - 1)]++;
+			games++;
+		}
+	}
+
+	// SplitMix64 - decorrelates neighbouring game numbers
+	static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	static long gameSeed(long seed, long game){
+		return mix(seed + game * 0x9e3779b97f4a7c15L);
+	}
+
+	static void playGame(long gameSeed, Stats stats){
+		GameEngine e = new GameEngine(NUM_PLAYERS, QUEUE_SIZE, gameSeed);
+		Random cpu = new Random(mix(gameSeed));
+
+		while(!e.isOver()){
+			Phase phase = e.phase();
+			int move = e.randomMove(cpu);
+
+			if(phase == Phase.RoleChoose)
+				stats.rolePicks[move]++;
+
+			e.apply(move);
+		}
+
+		stats.record(e);
+	}
+
+	static class Games extends RecursiveTask<Stats> {
+		private static final long serialVersionUID = 1L;
+
+		final long seed, from, to;
+
+		Games(long seed, long from, long to){
+			this.seed = seed; this.from = from; this.to = to;
+		}
+
+		protected Stats compute(){
+			if(to - from <= LEAF_GAMES){
+				Stats stats = new Stats();
+				for(long g = from; g < to; g++){
+					playGame(gameSeed(seed, g), stats);
+				}
+				return stats;
+			}
+
+			long mid = (from + to) >>> 1;
+			Games left = new Games(seed, from, mid);
+			left.fork();
+			Stats stats = new Games(seed, mid, to).compute();
+			stats.add(left.join());
+			return stats;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 1000000L;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0L;
+		String out = args.length > 2 ? args[2] : "simulation.txt";
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		// The summary's all rates and averages over the games played
+		if(games < 1 || threads < 1){
+			System.err.println("Simulator [games >= 1] [seed] [output file] [threads >= 1]");
+			System.exit(1);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		long start = System.nanoTime();
+		Stats stats = pool.invoke(new Games(seed, 0, games));
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		pool.shutdown();
+
+		PrintWriter w = new PrintWriter(new FileWriter(out));
+		try {
+			writeSummary(w, stats, seed);
+		}
+		finally {
+			w.close();
+		}
+
+		System.out.println(String.format("%d games in %.2fs on %d threads: %.0f games/sec. Summary in %s",
+				stats.games, seconds, threads, stats.games / seconds, out));
+	}
+
+	static void writeSummary(PrintWriter w, Stats stats, long seed){
+		w.println(String.format("games %d seed %d players %d queue %d", stats.games, seed, NUM_PLAYERS, QUEUE_SIZE));
+
+		w.println();
+		w.println("seat  mean    stddev  min  p10  p50  p90  max  wins");
+		for(int p = 0; p < NUM_PLAYERS; p++){
+			long[] h = stats.score[p];
+			w.println(String.format("%-5d %-7.2f %-7.2f %-4d %-4d %-4d %-4d %-4d %.3f",
+					p, mean(h), stddev(h), percentile(h, 0), percentile(h, 0.1), percentile(h, 0.5),
+					percentile(h, 0.9), percentile(h, 1), (double) stats.wins[p] / WIN_SHARES / stats.games));
+		}
+
+		w.println();
+		w.println("role     top     bottom");
+		String[] names = { "Field", "Pasture", "Village", "Manor", "Forest" };
+		long picks = 0;
+		for(long n : stats.rolePicks) picks += n;
+		for(int c = 0; c < GameEngine.ROLE_COLUMNS; c++){
+			w.println(String.format("%-8s %.4f  %.4f", names[c],
+					(double) stats.rolePicks[GameEngine.roleMove(0, c)] / picks,
+					(double) stats.rolePicks[GameEngine.roleMove(1, c)] / picks));
+		}
+
+		w.println();
+		w.println(String.format("rounds mean %.2f min %d max %d", mean(stats.rounds),
+				percentile(stats.rounds, 0), percentile(stats.rounds, 1)));
+	}
+
+	static double mean(long[] h){
+		double sum = 0, n = 0;
+		for(int b = 0; b < h.length; b++){ sum += (double) b * h[b]; n += h[b]; }
+		return n == 0 ? 0 : sum / n;
+	}
+
+	static double stddev(long[] h){
+		double m = mean(h), sum = 0, n = 0;
+		for(int b = 0; b < h.length; b++){ sum += (b - m) * (b - m) * h[b]; n += h[b]; }
+		return n == 0 ? 0 : java.lang.Math.sqrt(sum / n);
+	}
+
+	// Smallest bin with at least fraction q of the samples at or below it
+	static int percentile(long[] h, double q){
+		long n = 0;
+		for(long c : h) n += c;
+
+		long target = java.lang.Math.max(1, (long) java.lang.Math.ceil(q * n));
+		long seen = 0;
+		for(int b = 0; b < h.length; b++){
+			seen += h[b];
+			if(seen >= target) return b;
+		}
+		return h.length - 1;
+	}
+}
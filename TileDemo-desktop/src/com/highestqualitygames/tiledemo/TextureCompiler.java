@@ -0,0 +1,262 @@
+package com.highestqualitygames.tiledemo;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/*
+Compiles a packed atlas's PNG pages into TextureContainers, for textures.sh after
+the packer has run.
+
+	TextureCompiler <dir>/<name>.atlas
+
+writes <dir>/<name>-compiled.atlas, the same atlas with each page.png swapped for a
+page.tdt holding its decoded RGBA and a full mipmap chain, and minification switched
+to trilinear so the board's 0.25-0.5 scales sample the mipmaps. Assets uses the
+compiled atlas when it's there, except on Android. The output is a build product
+(it's in .gitignore), several MB for the one page.
+
+There's one texture for every size things get drawn at: the GPU picks the mipmap
+level closest to each draw (level 1 for the 100px queue and player tiles, 2 for
+50px pieces), which is what per-size atlas variants would have bought, without the
+extra pages.
+
+Mipmaps are a 2x2 box filter weighted by alpha, so transparent texels don't darken
+the edges of what's next to them, and kept within each region (see downsample).
+The packer only leaves 2px between regions, so a plain page-wide filter starts
+mixing neighbouring tiles together from level 2 down - exactly the small sizes.
+ */
+
+public class TextureCompiler {
+	static final String MIN_FILTER = "MipMapLinearLinear";
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1 || !args[0].endsWith(".atlas")){
+			System.err.println("TextureCompiler <atlas>");
+			System.exit(1);
+		}
+
+		File atlas = new File(args[0]);
+		File dir = atlas.getAbsoluteFile().getParentFile();
+		File compiled = new File(dir, atlas.getName().replace(".atlas", "-compiled.atlas"));
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(atlas));
+		try {
+			for(String line; (line = in.readLine()) != null; ){
+				lines.add(line);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		Map<String, List<int[]>> regions = regions(lines);
+		PrintWriter out = new PrintWriter(compiled);
+
+		try {
+			boolean pageNext = true;
+			for(String line : lines){
+				if(line.trim().length() == 0){
+					pageNext = true;
+				}
+				else if(pageNext){
+					pageNext = false;
+					if(!line.endsWith(".png"))
+						throw new Error("Can only compile .png pages, not " + line);
+
+					String page = line.replace(".png", TextureContainer.SUFFIX);
+					compile(new File(dir, line), new File(dir, page), regions.get(line));
+					line = page;
+				}
+				else if(line.startsWith("filter:")){
+					// Keep the magnification filter
+					line = "filter: " + MIN_FILTER + line.substring(line.indexOf(','));
+				}
+
+				out.println(line);
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		System.out.println("Wrote " + compiled);
+	}
+
+	// Page name to its regions' { x, y, width, height } as packed. Pages start after a
+	// blank line (or at the top); region entries follow them, names unindented.
+	static Map<String, List<int[]>> regions(List<String> lines){
+		Map<String, List<int[]>> pages = new HashMap<String, List<int[]>>();
+		List<int[]> page = null;
+		int[] region = null;
+		boolean pageNext = true, rotated = false;
+
+		for(String line : lines){
+			if(line.trim().length() == 0){
+				pageNext = true;
+			}
+			else if(pageNext){
+				pageNext = false;
+				page = new ArrayList<int[]>();
+				pages.put(line, page);
+			}
+			else if(!line.startsWith(" ") && !line.contains(":")){
+				region = new int[4];
+				page.add(region);
+			}
+			else if(region != null && line.trim().startsWith("rotate:")){
+				rotated = line.contains("true");
+			}
+			else if(region != null && line.trim().startsWith("xy:")){
+				int[] xy = pair(line);
+				region[0] = xy[0];
+				region[1] = xy[1];
+			}
+			else if(region != null && line.trim().startsWith("size:")){
+				// Rotated regions are packed on their side
+				int[] size = pair(line);
+				region[2] = size[rotated ? 1 : 0];
+				region[3] = size[rotated ? 0 : 1];
+			}
+		}
+		return pages;
+	}
+
+	static int[] pair(String line){
+		String[] v = line.substring(line.indexOf(':') + 1).split(",");
+		return new int[]{ Integer.parseInt(v[0].trim()), Integer.parseInt(v[1].trim()) };
+	}
+
+	// One mipmap level: colours, and which region each texel belongs to (-1 for padding)
+	static class Level {
+		final int width, height;
+		final int[] argb, owner;
+
+		Level(int width, int height){
+			this.width = width;
+			this.height = height;
+			argb = new int[width * height];
+			owner = new int[width * height];
+		}
+	}
+
+	static void compile(File png, File tdt, List<int[]> regions) throws IOException {
+		BufferedImage image = ImageIO.read(png);
+		if(image == null)
+			throw new Error("Can't decode " + png);
+
+		int width = image.getWidth(), height = image.getHeight();
+		Level level = new Level(width, height);
+		image.getRGB(0, 0, width, height, level.argb, 0, width);
+
+		Arrays.fill(level.owner, -1);
+		for(int r = 0; r < regions.size(); r++){
+			int[] rect = regions.get(r);
+			for(int y = rect[1]; y < java.lang.Math.min(height, rect[1] + rect[3]); y++){
+				Arrays.fill(level.owner, y * width + rect[0], y * width + java.lang.Math.min(width, rect[0] + rect[2]), r);
+			}
+		}
+
+		List<byte[]> rgba = new ArrayList<byte[]>();
+		rgba.add(rgba(level.argb));
+		while(level.width > 1 || level.height > 1){
+			level = downsample(level);
+			rgba.add(rgba(level.argb));
+		}
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tdt));
+		try {
+			TextureContainer.write(out, width, height, rgba.toArray(new byte[rgba.size()][]));
+		}
+		finally {
+			out.close();
+		}
+
+		System.out.println(String.format("%s: %dx%d, %d regions, %d levels, %d bytes", tdt, width, height, regions.size(), rgba.size(), tdt.length()));
+	}
+
+	static byte[] rgba(int[] argb){
+		byte[] b = new byte[argb.length * 4];
+		for(int i = 0; i < argb.length; i++){
+			b[4 * i] = (byte) (argb[i] >> 16);
+			b[4 * i + 1] = (byte) (argb[i] >> 8);
+			b[4 * i + 2] = (byte) argb[i];
+			b[4 * i + 3] = (byte) (argb[i] >>> 24);
+		}
+		return b;
+	}
+
+	// Half size (odd edges fold into the last texel). Each texel goes to whichever region
+	// most of its sources belong to and only averages those, so regions don't bleed into
+	// their neighbours however far down the chain; colour's averaged by alpha.
+	static Level downsample(Level src){
+		int w = src.width, h = src.height;
+		Level dst = new Level(java.lang.Math.max(1, w >> 1), java.lang.Math.max(1, h >> 1));
+		int[] sources = new int[9];
+
+		for(int y = 0; y < dst.height; y++){
+			for(int x = 0; x < dst.width; x++){
+				int n = 0;
+				for(int sy = 2 * y; sy < java.lang.Math.min(h, 2 * y + 2 + (y == dst.height - 1 ? h & 1 : 0)); sy++){
+					for(int sx = 2 * x; sx < java.lang.Math.min(w, 2 * x + 2 + (x == dst.width - 1 ? w & 1 : 0)); sx++){
+						sources[n++] = sy * w + sx;
+					}
+				}
+
+				int owner = majorityOwner(src.owner, sources, n);
+				long a = 0, r = 0, g = 0, b = 0;
+				int count = 0;
+
+				for(int k = 0; k < n; k++){
+					if(src.owner[sources[k]] != owner) continue;
+
+					int p = src.argb[sources[k]];
+					int pa = p >>> 24;
+					a += pa;
+					r += pa * ((p >> 16) & 0xff);
+					g += pa * ((p >> 8) & 0xff);
+					b += pa * (p & 0xff);
+					count++;
+				}
+
+				dst.owner[y * dst.width + x] = owner;
+				dst.argb[y * dst.width + x] = a == 0 ? 0 : (int) ((a + count / 2) / count) << 24
+						| (int) ((r + a / 2) / a) << 16 | (int) ((g + a / 2) / a) << 8 | (int) ((b + a / 2) / a);
+			}
+		}
+		return dst;
+	}
+
+	// The region owning the most of sources (ties to the first), padding only if nothing else
+	static int majorityOwner(int[] owners, int[] sources, int n){
+		int best = -1, bestCount = 0;
+		for(int k = 0; k < n; k++){
+			int o = owners[sources[k]];
+			if(o == -1 || o == best) continue;
+
+			int c = 0;
+			for(int m = 0; m < n; m++){
+				if(owners[sources[m]] == o) c++;
+			}
+			if(c > bestCount){
+				best = o;
+				bestCount = c;
+			}
+		}
+		return best;
+	}
+}
@@ -1,13 +1,16 @@
 package com.highestqualitygames.tiledemo;
 
-import java.util.Arrays;
-import java.util.List;
-
+import com.badlogic.gdx.Application.ApplicationType;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 
 public class Assets {
 	public static TextureRegion manor, forest, field, pasture, village;
@@ -18,10 +21,31 @@ public class Assets {
 	public static TextureRegion bg; 
 	
 	public static BitmapFont font;
+	// Board's decoration shader, or null to draw overlays. Lives as long as the atlas.
+	public static ShaderProgram tint;
+	
+	// Everything is loaded through manager, which reference counts it. Each user (the
+	// loading screen, every GameScreen) calls acquire() and, when it's finished with
+	// them, release(). The first acquire loads: update() the manager until it's done
+	// (LoadingScreen does) and then loaded() fills in the fields above. Later ones just
+	// count, reusing the textures already on the GPU. The last release disposes them,
+	// after which none of the fields above can be used.
+	static AssetManager manager;
+	
+	static final String ATLAS = "data/images.atlas";
+	// The same atlas with its pages precompiled (see TextureContainer), used when it's
+	// there - textures.sh builds it, it isn't checked in. Not on Android: the pages are
+	// several times the PNGs' size in the APK, and nothing's measured a faster start.
+	static final String COMPILED_ATLAS = "data/images-compiled.atlas";
+	static String atlasFile;
+	// libgdx's default font (the one new BitmapFont() gives you), repacked by FontCompiler
+	// into the atlas as FONT_REGION so text doesn't need a texture of its own
+	static final String FONT = "data/arial-15.fnt";
+	static final String FONT_REGION = "arial-15";
 	
 	// Assets.java  isn't a great place for these, but it's okay.
-	// NOTE: These are (arguable) doing double duty as logical and UI values.
-	// This is not perfect but is working.
+	// The game logic has moved to GameEngine, which uses plain codes in the same
+	// order as these enums - of() maps back without allocating a values() array.
 	
 	public enum Worker implements Board.TileSet {
 		Purple, Teal, Orange, White, Black, Empty;
@@ -43,6 +67,10 @@ public class Assets {
 	public enum Tile implements Board.TileSet {
 		Empty, Manor, Forest, Field, Pasture, Village;
 		
+		static final Tile[] codes = values();
+		
+		public static Tile of(int code){ return codes[code]; }
+		
 		public boolean IsEmpty(){ return this == Empty; };
 		
 		public TextureRegion tr(){
@@ -57,9 +85,19 @@ public class Assets {
 		}
 	}
 	
-	/* Splitting these to top/bottom is not good game logic, but the game logic is eventually departing this class... */
+	/* Split to top/bottom for drawing. GameEngine has the actual roles. */
 	public enum Role implements Board.TileSet {
 		Empty, FieldTop, FieldBottom, PastureTop, PastureBottom, VillageTop, VillageBottom, ManorTop, ManorBottom, ForestTop, ForestBottom;
+		
+		static final Role[] codes = values();
+		
+		// half 0 is top, 1 is bottom - see GameEngine
+		public static Role of(int half, int column){ return codes[1 + 2 * column + half]; }
+		
+		// From a GameEngine role move (or NO_ROLE)
+		public static Role ofMove(int move){
+			return move == GameEngine.NO_ROLE ? Empty : of(GameEngine.roleHalf(move), GameEngine.roleColumn(move));
+		}
 
 		public boolean IsEmpty(){ return this == Empty; };
 
@@ -78,46 +116,43 @@ public class Assets {
 			default: throw new Error("Bad tile request");
 			}
 		}
+	}
+
+	static void init(){
+		FileHandleResolver resolver = new InternalFileHandleResolver();
+		manager = new AssetManager(resolver);
+		manager.setLoader(Texture.class, TextureContainer.SUFFIX, new TextureContainer.Loader(resolver));
 		
-		public int workers(){
-			switch(this){
-			case FieldBottom:
-			case PastureBottom:
-			case VillageBottom:
-			case ManorBottom:
-			case ForestBottom:
-				return 1;
-			default: return 0;
-			}
-		}
-		
-		// How many points gained for a worker on which type of tile?
-		public static class PointYield {
-			Tile tile;
-			int points;
-		}
+		// Textures lost with the GL context (Android, coming back from the background) get
+		// reloaded through the manager - see TileDemoGame.render()
+		Texture.setAssetManager(manager);
 		
-		PointYield P(Tile t, int p){
-			PointYield py = new PointYield();
-			py.tile = t; py.points = p;
-			return py;
-		}
+		boolean compiled = Gdx.app.getType() != ApplicationType.Android && resolver.resolve(COMPILED_ATLAS).exists();
+		atlasFile = compiled ? COMPILED_ATLAS : ATLAS;
+	}
+	
+	static void acquire(){
+		manager.load(atlasFile, TextureAtlas.class);
+	}
+	
+	static void release(){
+		manager.unload(atlasFile);
 		
-		public List<PointYield> points(){
-			switch(this){
-			case FieldTop: return Arrays.asList(P(Tile.Field, 3), P(Tile.Pasture, 2));
-			case PastureTop: return Arrays.asList(P(Tile.Pasture, 3), P(Tile.Village, 2));
-			case VillageTop: return Arrays.asList(P(Tile.Village, 3), P(Tile.Field, 2));
-			case ManorTop: return Arrays.asList(P(Tile.Manor, 4), P(Tile.Forest, 1));
-			case ForestTop: return Arrays.asList(P(Tile.Forest, 4), P(Tile.Manor, 1));
-			default: return Arrays.asList();
+		if(!manager.isLoaded(atlasFile)){
+			font = null;
+			
+			if(tint != null){
+				tint.dispose();
+				tint = null;
 			}
 		}
 	}
-
-	static void load(){
-		TextureAtlas atlas;
-		atlas = new TextureAtlas(Gdx.files.internal("data/images.atlas"));
+	
+	static void loaded(){
+		TextureAtlas atlas = manager.get(atlasFile, TextureAtlas.class);
+		
+		if(tint == null)
+			tint = Board.newTintShader();
 		
 		bg = atlas.findRegion("bg");
 		
@@ -149,6 +184,8 @@ public class Assets {
 		
 		playerBG = atlas.findRegion("playerBG");
 		
-		font = new BitmapFont();
+		// Glyphs in the atlas, so nothing of its own to dispose
+		if(font == null)
+			font = new BitmapFont(Gdx.files.internal(FONT), atlas.findRegion(FONT_REGION), false);
 	}
 }
@@ -0,0 +1,95 @@
+package com.highestqualitygames.tiledemo;
+
+/*
+Work off the render thread, where the platform has threads to do it on.
+
+Core is also compiled by GWT, which has no java.util.concurrent (or Thread), so it
+can't start threads itself. The launchers that can hand TileDemoGame a
+ThreadedBackground; otherwise platform stays SameThread, which runs each task right
+there in submit - everything still works, the CPU players just think on the render
+thread.
+ */
+
+abstract class Background {
+	interface Task<T> {
+		T run();
+	}
+
+	interface Pending<T> {
+		boolean isDone();
+
+		// Blocks until done. A task that threw, or was cancelled, throws Error here.
+		T get();
+
+		// Stops it if it's running (interrupting the thread), or never starts it
+		void cancel();
+	}
+
+	interface Workers {
+		<T> Pending<T> submit(Task<T> task);
+
+		// No new tasks; running ones finish
+		void shutdown();
+
+		// No new tasks; running ones are cancelled
+		void shutdownNow();
+	}
+
+	static Background platform = new SameThread();
+
+	// Worker threads are daemons, so they never hold up exit. Low priority ones give
+	// way to the render thread.
+	abstract Workers newWorkers(String name, int threads, boolean lowPriority);
+
+	// How many tasks can really run at once
+	abstract int cores();
+
+	static class SameThread extends Background {
+		Workers newWorkers(String name, int threads, boolean lowPriority){
+			return new Workers(){
+				public <T> Pending<T> submit(Task<T> task){
+					T result = null;
+					Throwable failure = null;
+
+					try {
+						result = task.run();
+					}
+					catch(RuntimeException e){
+						failure = e;
+					}
+					catch(Error e){
+						failure = e;
+					}
+
+					final T r = result;
+					final Throwable f = failure;
+					return new Pending<T>(){
+						public boolean isDone(){
+							return true;
+						}
+
+						public T get(){
+							if(f != null)
+								throw new Error("Background task failed", f);
+
+							return r;
+						}
+
+						public void cancel(){
+						}
+					};
+				}
+
+				public void shutdown(){
+				}
+
+				public void shutdownNow(){
+				}
+			};
+		}
+
+		int cores(){
+			return 1;
+		}
+	}
+}
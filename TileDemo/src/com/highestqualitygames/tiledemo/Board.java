@@ -1,14 +1,29 @@
 package com.highestqualitygames.tiledemo;
 
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.IntBuffer;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.scenes.scene2d.ui.Widget;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.scenes.scene2d.utils.Cullable;
+import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.ui.ScrollPane;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.IntArray;
 
 /*
 A Scene2D.ui Widget for a rectangular grid of game tiles supporting a
@@ -30,9 +45,26 @@ Here's a typical use of Board:
 		
 highlightSet sets a rectangular region of highlighted tiles.
 Selectable tiles are constrained by selectionSet and then by tileSelectable.
+
+Decorations are asked of the Selection once per cell when it's set and kept in a
+byte per cell, so drawing them is an array read. Anything the Selection's answers
+depend on changing behind Board's back (other than a click, which Board sees) needs
+an invalidateDecorations().
+
+draw only emits cells that can actually be seen: either the culling area a ScrollPane
+hands us when we're its direct widget, or the window of the nearest ancestor ScrollPane
+worked out from its position on stage. Boards outside any ScrollPane draw everything.
+
+Decorated tiles are tinted by a shader in the same pass as the tile itself when
+there is one (Assets.tint), rather than getting a translucent quad drawn over them -
+see TINTING below.
+
+setRetained(true) plus a frozenRows override caches rows that never change - see
+RETAINED MODE below. Retained boards need dispose() calling. Zoomed out (setTileSize)
+past OVERVIEW_TILE_SIZE, the frozen rows are drawn as one quad instead - see OVERVIEW.
  */
 
-abstract class Board<TileT extends Board.TileSet, PieceT extends Board.TileSet> extends Widget {
+abstract class Board<TileT extends Board.TileSet, PieceT extends Board.TileSet> extends Widget implements Cullable {
 	// Note: Just about everything here is row major, row first - int row, int col; int i (row) vs int j (col) etc
 	// I try not to refer to row/col as y/x or x/y.
 	
@@ -54,7 +86,7 @@ abstract class Board<TileT extends Board.TileSet, PieceT extends Board.TileSet>
 	
 	public static enum TileDecoration { None, Highlight, Select }
 	
-	public Selection selection;
+	private Selection selection;
 	
 	public static abstract class Selection {
 		boolean tileSelectable(int row, int column){
@@ -70,8 +102,31 @@ abstract class Board<TileT extends Board.TileSet, PieceT extends Board.TileSet>
 		}
 	}
 	
+	// Cached selection.tileDecoration ordinals, row major, if decorated
+	private byte[] decorations = new byte[0];
+	private boolean decorated, decorationsDirty;
+	static final byte NO_DECORATION = (byte) TileDecoration.None.ordinal();
+	static final byte HIGHLIGHT = (byte) TileDecoration.Highlight.ordinal();
+	
 	abstract TileT tileAt(int row, int column);
-	List<PieceT> piecesAt(int row, int column){return new ArrayList<PieceT>();}
+	
+	// Add the pieces on row, column to out, which the caller has cleared and owns.
+	// Called for every cell every frame, so don't allocate in here.
+	void piecesAt(int row, int column, Array<PieceT> out){}
+	
+	// Reused every frame by draw
+	private final Array<PieceT> pieces = new Array<PieceT>(8);
+	private final Color opaque = new Color(), overlay = new Color();
+	
+	// Culling - area is in local coordinates, set by a parent ScrollPane (or null)
+	private Rectangle cullingArea;
+	private final Rectangle visible = new Rectangle();
+	private final Vector2 corner = new Vector2();
+	// Visible cell range, [first, last) - updated by updateVisibleCells
+	int rowBegin, rowEnd, colBegin, colEnd;
+	
+	// What the last draw did, for PerfHud. Cached rows count as cells but not quads.
+	int cellsDrawn, quadsDrawn;
 
 	public Board(int tilesWide, int tilesHigh, float tileSize, float pieceSize, final String n){
 		//super();
@@ -96,15 +151,54 @@ abstract class Board<TileT extends Board.TileSet, PieceT extends Board.TileSet>
 			int col = (int) java.lang.Math.floor(x / tileSize);
 			int row = (int) java.lang.Math.floor(y / tileSize);
 			
-			if(selection.tileSelectable(row, col))
+			if(selection.tileSelectable(row, col)){
 				selection.selected(row, col);
+				invalidateDecorations();
+			}
+		}
+	}
+	
+	public void setSelection(Selection s){
+		selection = s;
+		invalidateDecorations();
+	}
+	
+	public void invalidateDecorations(){
+		decorationsDirty = true;
+	}
+	
+	void updateDecorations(){
+		decorationsDirty = false;
+		decorated = selection != null;
+		
+		if(!decorated)
+			return;
+		
+		int cells = tilesWide * tilesHigh;
+		if(decorations.length < cells)
+			decorations = new byte[cells];
+		
+		for(int i = 0; i < tilesHigh; i++){
+			for(int j = 0; j < tilesWide; j++){
+				decorations[i * tilesWide + j] = (byte) selection.tileDecoration(i, j).ordinal();
+			}
 		}
 	}
 	
+	// Zoom: everything's drawn relative to tileSize, pieces included
+	public void setTileSize(float size){
+		pieceSize *= size / tileSize;
+		tileSize = size;
+		scale = tileSize / 200f;
+		
+		this.invalidateHierarchy();
+	}
+	
 	public void resizeBoard(int tilesWide, int tilesHigh){
 		this.tilesWide = tilesWide;
 		this.tilesHigh = tilesHigh;
 
+		invalidateDecorations();
 		this.invalidateHierarchy();
 	}
 	
@@ -116,49 +210,556 @@ abstract class Board<TileT extends Board.TileSet, PieceT extends Board.TileSet>
 		return tileSize * tilesWide * getScaleX();
 	}
 		
+	public void setCullingArea(Rectangle area){
+		cullingArea = area;
+	}
+	
+	// Find the part of the board in view, in local coordinates. False if it can't be
+	// worked out (no stage or ScrollPane), meaning everything should be drawn.
+	boolean findVisibleArea(Rectangle out){
+		if(cullingArea != null){
+			out.set(cullingArea);
+			return true;
+		}
+		
+		if(getStage() == null)
+			return false;
+		
+		for(Group p = getParent(); p != null; p = p.getParent()){
+			if(p instanceof ScrollPane){
+				// Opposite corners of the pane's window, brought into our coordinates
+				p.localToStageCoordinates(corner.set(0, 0));
+				stageToLocalCoordinates(corner);
+				float x0 = corner.x, y0 = corner.y;
+				
+				p.localToStageCoordinates(corner.set(p.getWidth(), p.getHeight()));
+				stageToLocalCoordinates(corner);
+				
+				out.set(java.lang.Math.min(x0, corner.x), java.lang.Math.min(y0, corner.y), 
+						java.lang.Math.abs(corner.x - x0), java.lang.Math.abs(corner.y - y0));
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	void updateVisibleCells(){
+		rowBegin = 0; rowEnd = tilesHigh;
+		colBegin = 0; colEnd = tilesWide;
+		
+		if(!findVisibleArea(visible))
+			return;
+		
+		// Pieces can spill right out of their cell, so keep one extra column on the left
+		colBegin = clamp((int) java.lang.Math.floor(visible.x / tileSize) - 1, 0, tilesWide);
+		colEnd = clamp((int) java.lang.Math.ceil((visible.x + visible.width) / tileSize), 0, tilesWide);
+		rowBegin = clamp((int) java.lang.Math.floor(visible.y / tileSize), 0, tilesHigh);
+		rowEnd = clamp((int) java.lang.Math.ceil((visible.y + visible.height) / tileSize), 0, tilesHigh);
+	}
+	
+	static int clamp(int v, int min, int max){
+		return v < min ? min : v > max ? max : v;
+	}
+	
 	void drawTile(TextureRegion tr, Batch batch, float x, float y, float scale){
+		quadsDrawn++;
 		batch.draw(tr, x, y, getOriginX(), getOriginY(), 200f, 200f, scale, scale, 0f);
 	}
 	
 	public void draw(Batch batch, float a) {
 		validate();
 		
-		Color overlay = getColor(), opaque = getColor().cpy();
+		opaque.set(getColor());
+		overlay.set(getColor());
 		opaque.a = a;
 		overlay.a = 0.3f * a;
 		
-		for(int i = 0; i < tilesHigh; i++){
-			for(int j = 0; j < tilesWide; j++){
+		updateVisibleCells();
+		
+		if(decorationsDirty)
+			updateDecorations();
+		
+		cellsDrawn = (rowEnd - rowBegin) * (colEnd - colBegin);
+		quadsDrawn = 0;
+		
+		// Rows at or above liveRows come from the cache, apart from decorations
+		int liveRows = tilesHigh;
+		if(retained){
+			int frozen = java.lang.Math.min(frozenRows(), tilesHigh);
+			liveRows = tilesHigh - frozen;
+			
+			if(frozen > 0 && rowEnd > liveRows){
+				if(tileSize < OVERVIEW_TILE_SIZE && frozen <= OVERVIEW_MAX_SIZE)
+					drawOverview(batch, frozen);
+				else
+					drawRetained(batch, frozen);
+			}
+		}
+		
+		// Nothing to tint, nothing gained from switching shaders
+		tint = decorated ? Assets.tint : null;
+		if(tint != null){
+			batch.setShader(tint);
+			// All of them, every time - they're back to 0 after a context loss recompiles it
+			tint.setUniformf("u_color", opaque.r, opaque.g, opaque.b);
+			tint.setUniformf("u_highlight", HIGHLIGHT_TINT[0], HIGHLIGHT_TINT[1], HIGHLIGHT_TINT[2]);
+			tint.setUniformf("u_select", SELECT_TINT[0], SELECT_TINT[1], SELECT_TINT[2]);
+		}
+		
+		for(int i = rowBegin; i < rowEnd; i++){
+			for(int j = colBegin; j < colEnd; j++){
 				float x = getX() + tileSize * j * getScaleX();
 				float y = getY() + tileSize * i * getScaleY();
+				byte d = decorated ? decorations[i * tilesWide + j] : NO_DECORATION;
+				boolean tileDrawn = i < liveRows && !tileAt(i, j).IsEmpty();
 				
-				if(!tileAt(i,j).IsEmpty()){
-					batch.setColor(opaque);
-					
+				if(tileDrawn){
+					batchColor(batch, opaque, d);
 					drawTile(tileAt(i, j).tr(), batch, x, y, scale);
 				}
 				
-				if(selection != null){
-					switch(selection.tileDecoration(i, j)){
-					case Highlight: 
-						batch.setColor(overlay);
-						drawTile(Assets.highlight, batch, x, y, scale);
-						break;
-					case Select:
-						batch.setColor(overlay);
-						drawTile(Assets.selectable, batch, x, y, scale);
-						break;
-					default: 
-					}
+				// Empty and cached cells have no tile to tint
+				if(d != NO_DECORATION && (tint == null || !tileDrawn)){
+					batchColor(batch, overlay, NO_DECORATION);
+					drawTile(d == HIGHLIGHT ? Assets.highlight : Assets.selectable, batch, x, y, scale);
 				}
+				
+				if(i >= liveRows)
+					continue;
 
+				pieces.clear();
+				piecesAt(i, j, pieces);
+				
+				if(pieces.size > 0)
+					batchColor(batch, opaque, NO_DECORATION);
+				
 				float pieceX = 0, pieceY = 0;
-				for(PieceT piece : this.piecesAt(i, j)){
-					drawTile(piece.tr(), batch, x + pieceX, y + pieceY, pieceSize / 200f);
+				for(int k = 0; k < pieces.size; k++){
+					drawTile(pieces.get(k).tr(), batch, x + pieceX, y + pieceY, pieceSize / 200f);
 					pieceX += pieceSize;
 				}
 			}
 		}
+		
+		if(tint != null){
+			batch.setShader(null);
+			batch.setColor(opaque);
+		}
+	}
+	
+	/*
+	 * TINTING
+	 * 
+	 * TINT_FRAGMENT is SpriteBatch's shader with the colour moved to the u_color uniform,
+	 * which frees up the vertex colour's red channel to carry the cell's decoration. A
+	 * decorated texel comes out exactly as if its overlay quad had been blended over it
+	 * at 30% - the overlay textures are (near enough) flat colours, HIGHLIGHT_TINT and
+	 * SELECT_TINT - minus the second quad, its fill and the colour switching around it.
+	 */
+	
+	static final float[] HIGHLIGHT_TINT = { 1f, 0.45f, 0f }, SELECT_TINT = { 0f, 0.24f, 1f };
+	
+	static final String TINT_VERTEX = 
+			"attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+			"attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+			"attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" +
+			"uniform mat4 u_projTrans;\n" +
+			"varying vec4 v_color;\n" +
+			"varying vec2 v_texCoords;\n" +
+			"void main(){\n" +
+			"	v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+			"	v_color.a = v_color.a * (256.0/255.0);\n" +
+			"	v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" +
+			"	gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+			"}\n";
+	
+	static final String TINT_FRAGMENT = 
+			"#ifdef GL_ES\n" +
+			"precision mediump float;\n" +
+			"#endif\n" +
+			"varying vec4 v_color;\n" +
+			"varying vec2 v_texCoords;\n" +
+			"uniform sampler2D u_texture;\n" +
+			"uniform vec3 u_color, u_highlight, u_select;\n" +
+			"void main(){\n" +
+			"	vec4 c = texture2D(u_texture, v_texCoords);\n" +
+			"	vec3 rgb = c.rgb * u_color;\n" +
+			"	float d = floor(v_color.r * 255.0 + 0.5);\n" +
+			"	if(d == " + HIGHLIGHT + ".0) rgb = mix(rgb, u_highlight, 0.3);\n" +
+			"	else if(d != " + NO_DECORATION + ".0) rgb = mix(rgb, u_select, 0.3);\n" +
+			"	gl_FragColor = vec4(rgb, c.a * v_color.a);\n" +
+			"}\n";
+	
+	// The shader currently in the batch, if any
+	private ShaderProgram tint;
+	
+	// Null if it won't compile, and Board will stick to overlay quads
+	static ShaderProgram newTintShader(){
+		ShaderProgram s = new ShaderProgram(TINT_VERTEX, TINT_FRAGMENT);
+		
+		if(!s.isCompiled()){
+			Gdx.app.error("Board", "Tint shader didn't compile, drawing overlays instead: " + s.getLog());
+			s.dispose();
+			return null;
+		}
+		
+		return s;
+	}
+	
+	// c, plus decoration d if tinting
+	void batchColor(Batch batch, Color c, byte d){
+		if(tint != null)
+			batch.setColor(d / 255f, 0f, 0f, c.a);
+		else
+			batch.setColor(c);
+	}
+	
+	/*
+	 * RETAINED MODE
+	 * 
+	 * Rows that will never change again get baked into SpriteCaches, ROWS_PER_PAGE rows
+	 * to a page, and drawn with one call per page. Rows freeze from the top of the board
+	 * down; frozen row k (counting from the top) is always board row tilesHigh - 1 - k,
+	 * so pages are laid out relative to the top edge and survive the board growing.
+	 * Only the page that's still filling up gets rebuilt when rows freeze. Everything is
+	 * rebuilt if the layout scale changes; zooming (setTileSize) just scales the pages.
+	 */
+	
+	static final int ROWS_PER_PAGE = 16;
+	
+	private boolean retained;
+	private final Array<SpriteCache> pages = new Array<SpriteCache>();
+	private final IntArray pageIds = new IntArray(), pageRows = new IntArray();
+	private float bakedScaleX, bakedScaleY, bakedTileSize;
+	private final Matrix4 cacheTransform = new Matrix4();
+	
+	// The shader SpriteCache(size, useIndices) would compile for every page baked - which
+	// is every round, as rows freeze - and its private createDefaultShader has no other way in
+	static final String CACHE_VERTEX = 
+			"attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+			"attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+			"attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" +
+			"uniform mat4 u_projectionViewMatrix;\n" +
+			"varying vec4 v_color;\n" +
+			"varying vec2 v_texCoords;\n" +
+			"void main(){\n" +
+			"	v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+			"	v_color.a = v_color.a * (256.0/255.0);\n" +
+			"	v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" +
+			"	gl_Position = u_projectionViewMatrix * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+			"}\n";
+	
+	static final String CACHE_FRAGMENT = 
+			"#ifdef GL_ES\n" +
+			"precision mediump float;\n" +
+			"#endif\n" +
+			"varying vec4 v_color;\n" +
+			"varying vec2 v_texCoords;\n" +
+			"uniform sampler2D u_texture;\n" +
+			"void main(){\n" +
+			"	gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n" +
+			"}\n";
+	
+	// Compiled once per Board and shared by its pages. SpriteCache.dispose() disposes the
+	// shader it was given too, so that does nothing here; Board releases it in dispose().
+	static class CacheShader extends ShaderProgram {
+		CacheShader(){
+			super(CACHE_VERTEX, CACHE_FRAGMENT);
+			
+			if(!isCompiled())
+				throw new Error("Sprite cache shader didn't compile: " + getLog());
+		}
+		
+		public void dispose(){}
+		
+		void release(){
+			super.dispose();
+		}
+	}
+	
+	private CacheShader cacheShader;
+	
+	// How many rows, counted from the top of the board, will never change again.
+	// Only matters in retained mode.
+	int frozenRows(){
+		return 0;
+	}
+	
+	public void setRetained(boolean r){
+		if(!r)
+			dispose();
+		
+		retained = r;
+	}
+	
+	public void dispose(){
+		disposeCache();
+		disposeOverview();
+		
+		if(cacheShader != null)
+			cacheShader.release();
+		cacheShader = null;
+	}
+	
+	void disposeCache(){
+		for(SpriteCache page : pages){
+			if(page != null) page.dispose();
+		}
+		
+		pages.clear();
+		pageIds.clear();
+		pageRows.clear();
+	}
+	
+	void updateCache(int frozen){
+		if(bakedScaleX != getScaleX() || bakedScaleY != getScaleY()){
+			disposeCache();
+			bakedScaleX = getScaleX();
+			bakedScaleY = getScaleY();
+		}
+		
+		int numPages = (frozen + ROWS_PER_PAGE - 1) / ROWS_PER_PAGE;
+		
+		// Rows un-freezing means a different board, start over
+		if(numPages < pages.size)
+			disposeCache();
+		
+		// Zooming doesn't need a rebake, just a different transform
+		if(pages.size == 0)
+			bakedTileSize = tileSize;
+		
+		for(int p = 0; p < numPages; p++){
+			int rows = java.lang.Math.min(ROWS_PER_PAGE, frozen - p * ROWS_PER_PAGE);
+			
+			if(p < pages.size && pageRows.get(p) == rows)
+				continue;
+			
+			if(p < pages.size){
+				if(pages.get(p) != null) pages.get(p).dispose();
+				pages.set(p, null);
+			}
+			else {
+				pages.add(null);
+				pageIds.add(0);
+				pageRows.add(0);
+			}
+			
+			bakePage(p, rows);
+		}
+	}
+	
+	// Bake frozen rows [p * ROWS_PER_PAGE, p * ROWS_PER_PAGE + rows) into page p
+	void bakePage(int p, int rows){
+		int firstFrozen = p * ROWS_PER_PAGE;
+		
+		// SpriteCaches are fixed size, so count first
+		int quads = 0;
+		for(int k = firstFrozen; k < firstFrozen + rows; k++){
+			int i = tilesHigh - 1 - k;
+			for(int j = 0; j < tilesWide; j++){
+				if(!tileAt(i, j).IsEmpty()) quads++;
+				
+				pieces.clear();
+				piecesAt(i, j, pieces);
+				quads += pieces.size;
+			}
+		}
+		
+		pageRows.set(p, rows);
+		
+		if(quads == 0)
+			return;
+		
+		// Baked at bakedTileSize, drawRetained scales them to whatever tileSize is now
+		float t = bakedTileSize, zoom = t / tileSize;
+		
+		if(cacheShader == null)
+			cacheShader = new CacheShader();
+		
+		SpriteCache cache = new SpriteCache(quads, cacheShader, true);
+		cache.setColor(getColor());
+		cache.beginCache();
+		
+		for(int k = firstFrozen; k < firstFrozen + rows; k++){
+			int i = tilesHigh - 1 - k;
+			float y = -t * (k + 1) * getScaleY();
+			
+			for(int j = 0; j < tilesWide; j++){
+				float x = t * j * getScaleX();
+				
+				if(!tileAt(i, j).IsEmpty())
+					cache.add(tileAt(i, j).tr(), x, y, getOriginX(), getOriginY(), 200f, 200f, scale * zoom, scale * zoom, 0f);
+				
+				pieces.clear();
+				piecesAt(i, j, pieces);
+				
+				float pieceX = 0;
+				for(int n = 0; n < pieces.size; n++){
+					cache.add(pieces.get(n).tr(), x + pieceX, y, getOriginX(), getOriginY(), 200f, 200f, pieceSize * zoom / 200f, pieceSize * zoom / 200f, 0f);
+					pieceX += pieceSize * zoom;
+				}
+			}
+		}
+		
+		pageIds.set(p, cache.endCache());
+		pages.set(p, cache);
+	}
+	
+	void drawRetained(Batch batch, int frozen){
+		updateCache(frozen);
+		
+		batch.end();
+		
+		// Pages are baked relative to our top left corner
+		cacheTransform.set(batch.getTransformMatrix()).translate(getX(), getY() + tileSize * tilesHigh * getScaleY(), 0)
+			.scale(tileSize / bakedTileSize, tileSize / bakedTileSize, 1f);
+		
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		
+		for(int p = 0; p < pages.size; p++){
+			SpriteCache page = pages.get(p);
+			if(page == null) continue;
+			
+			// Board rows covered by this page, skip if entirely out of view
+			int top = tilesHigh - 1 - p * ROWS_PER_PAGE;
+			int bottom = top - pageRows.get(p) + 1;
+			if(bottom >= rowEnd || top < rowBegin) continue;
+			
+			page.setProjectionMatrix(batch.getProjectionMatrix());
+			page.setTransformMatrix(cacheTransform);
+			page.begin();
+			page.draw(pageIds.get(p));
+			page.end();
+		}
+		
+		batch.begin();
+	}
+	
+	/*
+	 * OVERVIEW
+	 * 
+	 * Zoomed out far enough, even a cached page per 16 rows is hundreds of quads a
+	 * frame for no visible detail. Instead the frozen rows are drawn once into a
+	 * FrameBuffer, overviewTexels texels to a tile (the atlas mipmaps do the
+	 * averaging), and the whole lot goes on screen as a single quad whatever the
+	 * board's length. Like the pages, frozen row k lives at a fixed place counted from
+	 * the top of the buffer, so rows that freeze are just drawn in on top; only running
+	 * out of room (or the board changing width) means drawing it all again.
+	 */
+	
+	static final float OVERVIEW_TILE_SIZE = 40f;
+	// Tallest buffer we'll ask for - 2048 is safe on anything GLES2
+	static final int OVERVIEW_MAX_SIZE = 2048, OVERVIEW_MAX_TEXELS = 8;
+	
+	private FrameBuffer overview;
+	// Rows the buffer has room for, rows drawn into it, and texels per tile each way
+	private int overviewCapacity, overviewRows, overviewTexels;
+	private final Matrix4 savedProjection = new Matrix4(), savedTransform = new Matrix4();
+	private final Matrix4 overviewProjection = new Matrix4(), identity = new Matrix4();
+	// glGetIntegerv wants room for 16 on some drivers
+	private final IntBuffer viewport = BufferUtils.newIntBuffer(16);
+	
+	void disposeOverview(){
+		if(overview != null)
+			overview.dispose();
+		
+		overview = null;
+		overviewRows = 0;
+	}
+	
+	// Its contents, at least, don't survive losing the GL context
+	public void invalidateOverview(){
+		overviewRows = 0;
+	}
+	
+	void updateOverview(Batch batch, int frozen){
+		if(overview == null || frozen > overviewCapacity || frozen < overviewRows || 
+				overview.getColorBufferTexture().getWidth() != tilesWide * overviewTexels){
+			disposeOverview();
+			
+			overviewCapacity = 64;
+			while(overviewCapacity < frozen) overviewCapacity *= 2;
+			overviewTexels = clamp(OVERVIEW_MAX_SIZE / overviewCapacity, 1, OVERVIEW_MAX_TEXELS);
+			
+			// draw only asks for OVERVIEW_MAX_SIZE rows at most, a texel a tile
+			int height = java.lang.Math.min(overviewCapacity * overviewTexels, OVERVIEW_MAX_SIZE);
+			overviewCapacity = height / overviewTexels;
+			
+			overview = new FrameBuffer(Pixmap.Format.RGBA8888, tilesWide * overviewTexels, height, false);
+			overview.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+		}
+		
+		if(overviewRows == frozen)
+			return;
+		
+		int texels = overviewTexels, height = overview.getColorBufferTexture().getHeight();
+		
+		batch.end();
+		savedProjection.set(batch.getProjectionMatrix());
+		savedTransform.set(batch.getTransformMatrix());
+		
+		// FrameBuffer.end() sets the viewport to the whole screen, which needn't be ours
+		Gdx.gl.glGetIntegerv(GL20.GL_VIEWPORT, viewport);
+		
+		// We're inside the ScrollPane's clipping, which would clip the buffer too
+		boolean scissored = Gdx.gl.glIsEnabled(GL20.GL_SCISSOR_TEST);
+		Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
+		
+		overview.begin();
+		if(overviewRows == 0){
+			Gdx.gl.glClearColor(0f, 0f, 0f, 0f);
+			Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		}
+		
+		batch.setProjectionMatrix(overviewProjection.setToOrtho2D(0, 0, tilesWide * texels, height));
+		batch.setTransformMatrix(identity);
+		batch.setColor(Color.WHITE);
+		batch.begin();
+		
+		float pieceTexels = texels * pieceSize / tileSize;
+		for(int k = overviewRows; k < frozen; k++){
+			int i = tilesHigh - 1 - k;
+			float y = height - (k + 1) * texels;
+			
+			for(int j = 0; j < tilesWide; j++){
+				if(!tileAt(i, j).IsEmpty())
+					batch.draw(tileAt(i, j).tr(), j * texels, y, texels, texels);
+				
+				pieces.clear();
+				piecesAt(i, j, pieces);
+				
+				for(int n = 0; n < pieces.size; n++){
+					batch.draw(pieces.get(n).tr(), j * texels + n * pieceTexels, y, pieceTexels, pieceTexels);
+				}
+			}
+		}
+		
+		batch.end();
+		overview.end();
+		overviewRows = frozen;
+		
+		if(scissored)
+			Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
+		Gdx.gl.glViewport(viewport.get(0), viewport.get(1), viewport.get(2), viewport.get(3));
+		
+		batch.setProjectionMatrix(savedProjection);
+		batch.setTransformMatrix(savedTransform);
+		batch.begin();
+	}
+	
+	void drawOverview(Batch batch, int frozen){
+		updateOverview(batch, frozen);
+		
+		Texture t = overview.getColorBufferTexture();
+		int texels = overviewTexels;
+		
+		quadsDrawn++;
+		batch.setColor(opaque);
+		// Drawn y up, so flipped back
+		batch.draw(t, getX(), getY() + tileSize * (tilesHigh - frozen) * getScaleY(), 
+				tileSize * tilesWide * getScaleX(), tileSize * frozen * getScaleY(), 
+				0, t.getHeight() - frozen * texels, tilesWide * texels, frozen * texels, false, true);
 	}
 }
-
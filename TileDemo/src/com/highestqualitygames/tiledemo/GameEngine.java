@@ -0,0 +1,546 @@
+package com.highestqualitygames.tiledemo;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/*
+The rules of the game, with no rendering, Stage or libgdx anywhere near them.
+GameScreen is a view over one of these; simulations and AI just use it directly.
+
+State is all primitive codes:
+- Tiles are bytes in Assets.Tile order (0 is Empty).
+- Roles are a column (Field, Pasture, Village, Manor, Forest - Assets.Role order) and
+  a half: 0 is the top (points), 1 the bottom (a worker).
+- Rows are "array" coordinates, 0 is the starting Manor row and lastRow is the one
+  being played on. NOT Board coordinates.
+
+The game is a series of phases in which every player in turn makes one move.
+A move is an int whose meaning depends on the phase:
+	TileChoose  - index into the front (numPlayers + 1) of the tile queue
+	TilePlace   - column of the last row to put the chosen tile in
+	RoleChoose  - half * ROLE_COLUMNS + column
+	WorkerPlace - column of the last row to put a worker on, or PASS
+ */
+
+public class GameEngine {
+	public static final byte EMPTY = 0, MANOR = 1, FOREST = 2, FIELD = 3, PASTURE = 4, VILLAGE = 5;
+	public static final int NUM_TILE_TYPES = 6;
+
+	public static final int ROLE_COLUMNS = 5;
+	public static final int NO_ROLE = -1;
+	public static final int PASS = -1;
+
+	// How many points gained for a worker on which type of tile, per role column.
+	// Only the top half scores; the bottom half gives one worker.
+	static final byte[][] ROLE_YIELD_TILES = {
+		{ FIELD, PASTURE }, { PASTURE, VILLAGE }, { VILLAGE, FIELD }, { MANOR, FOREST }, { FOREST, MANOR }
+	};
+	static final int[][] ROLE_YIELD_POINTS = {
+		{ 3, 2 }, { 3, 2 }, { 3, 2 }, { 4, 1 }, { 4, 1 }
+	};
+
+	public enum Phase { TileChoose, TilePlace, RoleChoose, WorkerPlace, GameOver }
+
+	// Told about changes as they happen, on whichever thread applies moves.
+	// Copies and snapshots don't take listeners with them.
+	public interface Listener {
+		// Something in player(p) changed
+		void playerChanged(int player);
+		// move has been applied; board, queue, roles and phase may all have changed
+		void moveApplied(int move);
+	}
+
+	public static class PlayerState {
+		public int score = 0;
+		public byte currentTile = EMPTY;
+		public int currentRole = NO_ROLE;
+		public int numWorkers = 0;
+	}
+
+	// NON-MUTATING (after constructor)
+	public final int numPlayers, cols;
+	public final long seed;
+
+	// MUTATING
+	final PlayerState[] players;
+	Phase phase;
+	int currentPlayer;
+
+	TileRows tiles;
+	int lastRow;
+	WorkerOccupancy workers;
+	RegionIndex regions;
+
+	TileQueue queue;
+
+	boolean[] roleTaken = new boolean[ROLE_COLUMNS];
+
+	// Scratch for legal move generation
+	private final int[] moves;
+
+	private Listener[] listeners = new Listener[0];
+
+	public GameEngine(int numPlayers, int queueSize, long seed){
+		this.numPlayers = numPlayers;
+		this.seed = seed;
+		cols = numPlayers + 1;
+
+		players = new PlayerState[numPlayers];
+		for(int i = 0; i < numPlayers; i++){
+			players[i] = new PlayerState();
+		}
+
+		tiles = new TileRows(cols);
+		lastRow = tiles.addRow();
+		workers = new WorkerOccupancy(cols, numPlayers, 16);
+		regions = new RegionIndex(cols, numPlayers, NUM_TILE_TYPES, 16);
+		moves = new int[maxMoves()];
+
+		fillLastRow(MANOR);
+		fillTileQueue(queueSize);
+		setAllRoles();
+
+		phase = Phase.TileChoose;
+		currentPlayer = 0;
+	}
+
+	// Deep copy, for AI to play with
+	public GameEngine(GameEngine o){
+		numPlayers = o.numPlayers;
+		seed = o.seed;
+		cols = o.cols;
+
+		players = new PlayerState[numPlayers];
+		for(int i = 0; i < numPlayers; i++){
+			PlayerState ps = players[i] = new PlayerState();
+			ps.score = o.players[i].score;
+			ps.currentTile = o.players[i].currentTile;
+			ps.currentRole = o.players[i].currentRole;
+			ps.numWorkers = o.players[i].numWorkers;
+		}
+
+		phase = o.phase;
+		currentPlayer = o.currentPlayer;
+
+		tiles = new TileRows(o.tiles);
+		lastRow = o.lastRow;
+		workers = new WorkerOccupancy(o.workers);
+		regions = new RegionIndex(o.regions);
+
+		queue = new TileQueue(o.queue);
+
+		roleTaken = o.roleTaken.clone();
+		moves = new int[maxMoves()];
+	}
+
+	// Become a copy of o, a position in the same game, reusing this engine's storage.
+	// Mcts restores one scratch engine per playout this way rather than allocating one.
+	void set(GameEngine o){
+		if(o.numPlayers != numPlayers || o.seed != seed)
+			throw new Error("Can only set an engine to a position in the same game");
+
+		for(int i = 0; i < numPlayers; i++){
+			PlayerState ps = players[i];
+			ps.score = o.players[i].score;
+			ps.currentTile = o.players[i].currentTile;
+			ps.currentRole = o.players[i].currentRole;
+			ps.numWorkers = o.players[i].numWorkers;
+		}
+
+		phase = o.phase;
+		currentPlayer = o.currentPlayer;
+
+		tiles.set(o.tiles);
+		lastRow = o.lastRow;
+		workers.set(o.workers);
+		regions.set(o.regions);
+		queue.set(o.queue);
+
+		System.arraycopy(o.roleTaken, 0, roleTaken, 0, ROLE_COLUMNS);
+	}
+
+	/*
+	 * SNAPSHOTS
+	 * 
+	 * The whole state in a fixed layout binary form, for saving games. Everything is
+	 * fixed width and the variable length parts (players, queue, rows) have their
+	 * sizes ahead of them, so it's straight puts and gets on a ByteBuffer:
+	 * 
+	 *   magic version numPlayers seed phase currentPlayer lastRow   (ints, seed a long)
+	 *   numPlayers x score currentTile currentRole numWorkers       (ints)
+	 *   ROLE_COLUMNS x roleTaken                                    (bytes)
+	 *   queue                                                       (see TileQueue)
+	 *   (lastRow + 1) x cols tiles                                  (bytes)
+	 *   (lastRow + 1) x cols worker masks                           (ints)
+	 * 
+	 * The region index isn't stored, it's rebuilt from tiles and workers.
+	 */
+
+	static final int SNAPSHOT_MAGIC = 0x54445356; // "TDSV"
+	static final int SNAPSHOT_VERSION = 1;
+
+	public int snapshotBytes(){
+		int cells = (lastRow + 1) * cols;
+		return 6 * 4 + 8 + numPlayers * 4 * 4 + ROLE_COLUMNS + queue.snapshotBytes() + cells + cells * 4;
+	}
+
+	// Write a snapshot at b's position. The magic number goes in last, so a
+	// snapshot that didn't get finished won't read back.
+	public void writeSnapshot(ByteBuffer b){
+		int start = b.position();
+
+		b.putInt(0);
+		b.putInt(SNAPSHOT_VERSION);
+		b.putInt(numPlayers);
+		b.putLong(seed);
+		b.putInt(phase.ordinal());
+		b.putInt(currentPlayer);
+		b.putInt(lastRow);
+
+		for(PlayerState ps : players){
+			b.putInt(ps.score);
+			b.putInt(ps.currentTile);
+			b.putInt(ps.currentRole);
+			b.putInt(ps.numWorkers);
+		}
+
+		for(int c = 0; c < ROLE_COLUMNS; c++){
+			b.put((byte) (roleTaken[c] ? 1 : 0));
+		}
+
+		queue.writeSnapshot(b);
+
+		for(int r = 0; r <= lastRow; r++){
+			for(int c = 0; c < cols; c++){
+				b.put(tiles.get(r, c));
+			}
+		}
+
+		for(int r = 0; r <= lastRow; r++){
+			for(int c = 0; c < cols; c++){
+				b.putInt(workers.playersAt(r, c));
+			}
+		}
+
+		b.putInt(start, SNAPSHOT_MAGIC);
+	}
+
+	// Read a snapshot from b's position
+	public GameEngine(ByteBuffer b){
+		if(b.getInt() != SNAPSHOT_MAGIC)
+			throw new Error("Not a game snapshot, or an unfinished one");
+		if(b.getInt() != SNAPSHOT_VERSION)
+			throw new Error("Unknown game snapshot version");
+
+		numPlayers = b.getInt();
+		cols = numPlayers + 1;
+		seed = b.getLong();
+		phase = Phase.values()[b.getInt()];
+		currentPlayer = b.getInt();
+		int rows = b.getInt() + 1;
+
+		players = new PlayerState[numPlayers];
+		for(int i = 0; i < numPlayers; i++){
+			PlayerState ps = players[i] = new PlayerState();
+			ps.score = b.getInt();
+			ps.currentTile = (byte) b.getInt();
+			ps.currentRole = b.getInt();
+			ps.numWorkers = b.getInt();
+		}
+
+		for(int c = 0; c < ROLE_COLUMNS; c++){
+			roleTaken[c] = b.get() != 0;
+		}
+
+		queue = new TileQueue(b);
+
+		tiles = new TileRows(cols);
+		workers = new WorkerOccupancy(cols, numPlayers, rows);
+		regions = new RegionIndex(cols, numPlayers, NUM_TILE_TYPES, rows);
+
+		for(int r = 0; r < rows; r++){
+			lastRow = tiles.addRow();
+
+			for(int c = 0; c < cols; c++){
+				byte t = b.get();
+				tiles.set(r, c, t);
+
+				if(t != EMPTY)
+					regions.placeTile(r, c, t);
+			}
+		}
+
+		for(int r = 0; r < rows; r++){
+			for(int c = 0; c < cols; c++){
+				for(int mask = b.getInt(); mask != 0; mask &= mask - 1){
+					int p = Integer.numberOfTrailingZeros(mask);
+					workers.place(r, c, p);
+					regions.placeWorker(r, c, p);
+				}
+			}
+		}
+
+		moves = new int[maxMoves()];
+	}
+
+	/*
+	 * LISTENERS
+	 */
+
+	public void addListener(Listener l){
+		listeners = java.util.Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = l;
+	}
+
+	public void removeListener(Listener l){
+		for(int i = 0; i < listeners.length; i++){
+			if(listeners[i] == l){
+				Listener[] ls = new Listener[listeners.length - 1];
+				System.arraycopy(listeners, 0, ls, 0, i);
+				System.arraycopy(listeners, i + 1, ls, i, ls.length - i);
+				listeners = ls;
+				return;
+			}
+		}
+	}
+
+	/*
+	 * QUERIES
+	 */
+
+	public Phase phase(){ return phase; }
+	public int currentPlayer(){ return currentPlayer; }
+	public boolean isOver(){ return phase == Phase.GameOver; }
+	public PlayerState player(int p){ return players[p]; }
+
+	public int lastRow(){ return lastRow; }
+	public byte tileAt(int row, int col){ return tiles.get(row, col); }
+	// Bitmask of players with a worker on row, col
+	public int playersAt(int row, int col){ return workers.playersAt(row, col); }
+
+	public int queueSize(){ return queue.size(); }
+	// Generates tiles up to i if nobody's looked that far yet
+	public byte queueAt(int i){ return queue.get(i); }
+
+	public boolean roleAvailable(int column){ return !roleTaken[column]; }
+
+	public static int roleMove(int half, int column){ return half * ROLE_COLUMNS + column; }
+	public static int roleHalf(int move){ return move / ROLE_COLUMNS; }
+	public static int roleColumn(int move){ return move % ROLE_COLUMNS; }
+
+	/*
+	 * LEGAL MOVES
+	 */
+
+	// Upper bound on the number of legal moves in any phase
+	public int maxMoves(){
+		return java.lang.Math.max(2 * ROLE_COLUMNS, cols + 1);
+	}
+
+	// Write legal moves for the current player into out, return how many.
+	// out must hold at least maxMoves(). Order is stable: lowest index/column first.
+	public int legalMoves(int[] out){
+		switch(phase){
+		case TileChoose: {
+			int n = 0;
+			for(int i = 0; i < cols; i++){
+				if(queue.get(i) != EMPTY) out[n++] = i;
+			}
+			return n;
+		}
+		case TilePlace:
+			return availableIndices(tiles.chunk(lastRow), tiles.offset(lastRow), cols, true, out, 0);
+		case RoleChoose: {
+			int n = 0;
+			for(int half = 0; half < 2; half++){
+				for(int c = 0; c < ROLE_COLUMNS; c++){
+					if(!roleTaken[c]) out[n++] = roleMove(half, c);
+				}
+			}
+			return n;
+		}
+		case WorkerPlace: {
+			int n = 0;
+			if(players[currentPlayer].numWorkers > 0)
+				n = availableIndices(tiles.chunk(lastRow), tiles.offset(lastRow), cols, false, out, 0);
+			out[n++] = PASS;
+			return n;
+		}
+		default:
+			return 0;
+		}
+	}
+
+	// Write all indices in ts[from, from + n) (counting from from) that either DO (emptyAvailable)
+	// or DONT (!emptyAvailable) hold EMPTY into out from offset on. Returns the new end of out.
+	static int availableIndices(byte[] ts, int from, int n, boolean emptyAvailable, int[] out, int offset){
+		for(int i = 0; i < n; i++){
+			if((ts[from + i] == EMPTY) == emptyAvailable){
+				out[offset++] = i;
+			}
+		}
+		return offset;
+	}
+
+	public boolean isLegal(int move){
+		int n = legalMoves(moves);
+		for(int i = 0; i < n; i++){
+			if(moves[i] == move) return true;
+		}
+		return false;
+	}
+
+	// What happens when a human runs out of time: first tile, first column, the bottom
+	// (worker) half of the first role left, and no worker.
+	public int defaultMove(){
+		switch(phase){
+		case RoleChoose:
+			for(int c = 0; c < ROLE_COLUMNS; c++){
+				if(!roleTaken[c]) return roleMove(1, c);
+			}
+			throw new Error("No role left to default to");
+		case WorkerPlace:
+			return PASS;
+		default:
+			if(legalMoves(moves) == 0)
+				throw new Error("No legal move to default to");
+			return moves[0];
+		}
+	}
+
+	// Uniformly random legal move, except that a player with workers always places one.
+	public int randomMove(Random random){
+		int n = legalMoves(moves);
+
+		if(n == 0)
+			throw new Error("No legal move in randomMove");
+
+		if(phase == Phase.WorkerPlace && n > 1)
+			n--; // PASS is always last
+
+		return moves[random.nextInt(n)];
+	}
+
+	/*
+	 * APPLYING MOVES
+	 */
+
+	public void apply(int move){
+		if(!isLegal(move))
+			throw new Error("Illegal move " + move + " in " + phase + " for player " + currentPlayer);
+
+		int mover = currentPlayer;
+		PlayerState ps = players[currentPlayer];
+
+		switch(phase){
+		case TileChoose:
+			ps.currentTile = queue.take(move);
+			break;
+		case TilePlace:
+			tiles.set(lastRow, move, ps.currentTile);
+			regions.placeTile(lastRow, move, ps.currentTile);
+			ps.currentTile = EMPTY;
+			break;
+		case RoleChoose: {
+			int half = roleHalf(move), column = roleColumn(move);
+
+			if(half == 0){
+				for(int i = 0; i < 2; i++){
+					ps.score += ROLE_YIELD_POINTS[column][i] * regions.regionsWithWorker(currentPlayer, ROLE_YIELD_TILES[column][i]);
+				}
+			}
+			else {
+				ps.numWorkers += 1;
+			}
+
+			ps.currentRole = move;
+			roleTaken[column] = true;
+			break;
+		}
+		case WorkerPlace:
+			if(move != PASS){
+				workers.place(lastRow, move, currentPlayer);
+				regions.placeWorker(lastRow, move, currentPlayer);
+				ps.numWorkers -= 1;
+			}
+			break;
+		default:
+			throw new Error("Move applied with game over");
+		}
+
+		currentPlayer++;
+		if(currentPlayer >= numPlayers){
+			currentPlayer = 0;
+			endPhase();
+		}
+
+		for(Listener l : listeners){
+			l.playerChanged(mover);
+			l.moveApplied(move);
+		}
+	}
+
+	void endPhase(){
+		switch(phase){
+		case TileChoose:
+			shiftTileQueue();
+			addRow();
+			phase = Phase.TilePlace;
+			break;
+		case TilePlace:
+			setAllRoles();
+			phase = Phase.RoleChoose;
+			break;
+		case RoleChoose:
+			phase = Phase.WorkerPlace;
+			break;
+		case WorkerPlace:
+			for(int p = 0; p < numPlayers; p++){
+				players[p].currentRole = NO_ROLE;
+
+				for(Listener l : listeners){
+					l.playerChanged(p);
+				}
+			}
+
+			phase = queue.size() > cols ? Phase.TileChoose : Phase.GameOver;
+			break;
+		default:
+		}
+	}
+
+	/*
+	 *  TILE BOARD, QUEUE, ROLES
+	 */
+
+	void setAllRoles(){
+		for(int c = 0; c < ROLE_COLUMNS; c++){
+			roleTaken[c] = false;
+		}
+	}
+
+	void addRow(){
+		// New rows come out EMPTY
+		lastRow = tiles.addRow();
+	}
+
+	// Fill last row of tiles with just t (the starting Manor row)
+	void fillLastRow(byte t){
+		for(int i = 0; i < cols; i++){
+			tiles.set(lastRow, i, t);
+
+			if(t != EMPTY)
+				regions.placeTile(lastRow, i, t);
+		}
+	}
+
+	// A queue of n random (non-empty) tiles, generated as they're needed
+	void fillTileQueue(int n){
+		queue = new TileQueue(n, seed);
+	}
+
+	// Move blanks off the front of the queue
+	void shiftTileQueue(){
+		queue.removeEmpty(cols);
+	}
+}
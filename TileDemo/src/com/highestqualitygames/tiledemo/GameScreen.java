@@ -1,37 +1,58 @@
 package com.highestqualitygames.tiledemo;
 
-import java.util.Arrays;
 import java.util.Random;
 import java.util.List;
-import java.util.ArrayList;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Timer;
 
 import com.badlogic.gdx.scenes.scene2d.Action;
 import static com.badlogic.gdx.scenes.scene2d.actions.Actions.delay;
 import static com.badlogic.gdx.scenes.scene2d.actions.Actions.sequence;
+import com.badlogic.gdx.scenes.scene2d.actions.DelayAction;
+import com.badlogic.gdx.scenes.scene2d.actions.SequenceAction;
 
 import com.badlogic.gdx.scenes.scene2d.*;
 import com.badlogic.gdx.scenes.scene2d.ui.*;
 import com.badlogic.gdx.scenes.scene2d.ui.ScrollPane.ScrollPaneStyle;
 import com.badlogic.gdx.scenes.scene2d.utils.*;
 
-import com.highestqualitygames.tiledemo.Assets.Role.PointYield;
 import com.highestqualitygames.tiledemo.Assets.*;
 import com.highestqualitygames.tiledemo.Board.TileDecoration;
 
 import static com.highestqualitygames.tiledemo.Board.TileDecoration.*;
 
+/*
+The game as seen on screen. The rules and state all live in GameEngine; this class
+turns engine phases into announcements, highlights and timed player choices, and
+reads the engine back for display.
+ */
+
 public class GameScreen implements Screen {
 	public enum PlayerType {
-		LocalHuman, LocalCPU
+		LocalHuman, LocalCPU, LocalMCTS
 	}
 
 	Random random = new Random();
+	
+	// How long CPU players appear to think. MCTS players spend most of it searching.
+	// If a decision isn't back by the think time plus grace, it's abandoned.
+	static final float CPU_THINK_TIME = 3.0f;
+	static final float CPU_GRACE_TIME = 1.0f;
+	static final float MCTS_BUDGET = 0.8f * CPU_THINK_TIME;
+	
+	// CPU decisions run here, off the render thread where the platform has threads,
+	// on copies of the engine
+	Background.Workers cpuWorker;
+	Background.Pending<Integer> pendingDecision;
+	Mcts mcts;
 
 	// PROPERTIES - UI
 	Stage stage;
@@ -43,6 +64,7 @@ public class GameScreen implements Screen {
 	Board<Tile,Worker> tileBoard; // 2D - Y reversed
 	Board<Role,Role> roleChoose, roleChoice; // 2D - Y reversed
 	Label announcement;
+	PerfHud hud;
 	
 	// Non-changing player information
 	public static class Player {
@@ -55,14 +77,9 @@ public class GameScreen implements Screen {
 		}
 	}
 	
-	public static class PlayerState {
-		public int score = 0;
-		public Tile currentTile = Tile.Empty;
-		public Role currentRole = Role.Empty;
-		public int numWorkers = 0;
-	}
-	
 	int initQueueSize = 45;
+	// How much of the queue tileQueue shows. The rest isn't even generated until it scrolls in.
+	static final int QUEUE_WINDOW = 45;
 		
 	// PROPERTIES - GAME LOGIC - NON-MUTATING (after constructor)
 	int numPlayers;
@@ -70,52 +87,94 @@ public class GameScreen implements Screen {
 
 	
 	// PROPERTIES - GAME LOGIC - MUTATING
-	List<PlayerState> playerStates;
-
-	enum GamePhase { TileChoose, TilePlace, RoleChoose, WorkerPlace }
-	GamePhase phase;
-	
-	List<Tile> queue = new ArrayList<Tile>();
-	Tile[][] tiles;
-	int lastRow = 0;
-	boolean[][][] workers;
-
-	Role[][] roles;
-	/* Index into arrays (NOT Board coordinates) */
-	class Pair {
-		public int row, col;
-		public Pair(int r, int c){ row = r; col = c; }
-		public boolean equals(Object o){
-			if(!(o instanceof Pair)){
-				return false;
-			}
-			
-			Pair other = (Pair) o;
-			return other.row == row && other.col == col;
+	GameEngine engine;
+	
+	// Every move goes in the log, unless we're playing one back from replay
+	ReplayLog.Writer replayLog;
+	ReplayLog.Reader replay;
+	// Replays run the UI this much faster
+	static final float REPLAY_DELAY_SCALE = 0.02f;
+	float uiDelayScale = 1f;
+	
+	// The game in progress is saved here on pause(). See SaveGame.
+	static final String SAVE_FILE = "save.tds";
+	
+	// Only draw frames when something's changed or about to - see RENDERING ON DEMAND
+	static final boolean RENDER_ON_DEMAND = true;
+	final Array<ScrollPane> panes = new Array<ScrollPane>();
+	final Timer.Task wake = new Timer.Task(){
+		public void run(){
+			Gdx.graphics.requestRendering();
 		}
-	}
+	};
 
 	// Current queue is implicitly the first 5 tiles (4 players + 1 slack)
 	public GameScreen(List<Player> playerList) {
-		Assets.load();
+		this(playerList, null, null);
+	}
+	
+	// Play back replay instead of a new game. Player types are ignored.
+	public GameScreen(List<Player> playerList, ReplayLog.Reader replay) {
+		this(playerList, replay, null);
+	}
+	
+	// Carry on with a saved game, from the choice it was paused in
+	public GameScreen(List<Player> playerList, GameEngine saved) {
+		this(playerList, null, saved);
+	}
+	
+	// Set to start a fresh game with the same players once this one's over
+	Runnable rematch;
+	boolean rematchRequested;
+	
+	// Takes its own reference on Assets, released in dispose(). LoadingScreen gets them
+	// loaded the first time; after that (a rematch) this is just counting.
+	GameScreen(List<Player> playerList, ReplayLog.Reader replay, GameEngine saved) {
+		Assets.acquire();
+		Assets.manager.finishLoading();
+		Assets.loaded();
 		
 		numPlayers = playerList.size();
 		players = playerList;
-		playerStates = new ArrayList<PlayerState>();
-		for(int i = 0; i < numPlayers; i++){
-			playerStates.add(new PlayerState());
+		this.replay = replay;
+		
+		if(replay != null){
+			if(replay.numPlayers != numPlayers)
+				throw new Error("Replay is for " + replay.numPlayers + " players, not " + numPlayers);
+			
+			engine = replay.newEngine();
+			uiDelayScale = REPLAY_DELAY_SCALE;
+		}
+		else if(saved != null){
+			if(saved.numPlayers != numPlayers)
+				throw new Error("Saved game is for " + saved.numPlayers + " players, not " + numPlayers);
+			
+			engine = saved;
+			resumeReplayLog();
+		}
+		else {
+			engine = new GameEngine(numPlayers, initQueueSize, random.nextLong());
+			startReplayLog();
 		}
 		
-		tiles = new Tile[100][numPlayers + 1];
-		workers = new boolean[numPlayers + 1][100][numPlayers + 1];
+		cpuWorker = Background.platform.newWorkers("cpu-player", 1, false);
+		
+		for(Player p : players){
+			if(p.type == PlayerType.LocalMCTS && mcts == null)
+				mcts = new Mcts(random.nextLong());
+		}
 		
 		stage = new Stage();
 		Gdx.input.setInputProcessor(stage);
 		
-		fillLastRow(Tile.Manor);
-		fillTileQueue();
-		
-		setAllRoles();
+		// Any change to the game is worth a frame
+		engine.addListener(new GameEngine.Listener(){
+			public void playerChanged(int player){}
+			
+			public void moveApplied(int move){
+				Gdx.graphics.requestRendering();
+			}
+		});
 		
 		roleChooseLayer = makeChooseRoleLayer();
 		
@@ -124,7 +183,8 @@ public class GameScreen implements Screen {
 		st.add(makeTileQueueLayer());
 		st.add(roleChooseLayer);
 		st.add(makeAnnouncementLayer());
-		st.add(new Players(players, playerStates));
+		st.add(new Players(players, engine));
+		st.add(makePerfHudLayer());
 		
 		roleChooseLayer.setVisible(false);
 		
@@ -132,61 +192,185 @@ public class GameScreen implements Screen {
 
 		stage.addActor(st);
 		
-		phase = GamePhase.TileChoose;
-		tileChoicePhase().beginPhase();
+		if(saved != null){
+			// Straight back into whoever's choice it was
+			PlayerChoicePhase<Integer> p = choicePhase(engine.phase());
+			if(p != null)
+				p.resumePhase(engine.currentPlayer());
+			else
+				gameOver();
+		}
+		else {
+			tileChoicePhase().beginPhase();
+		}
 	}
 	
-	// This could be done more directly, but hoping to move some stuff out...
-	// Or to replace this with a way more explicit state based system
+	// Start the UI for whichever phase the engine has moved on to
 	public Action nextPhase = new Action(){
 			public boolean act(float d){
-				switch(phase){
-				case TileChoose:
-					phase = GamePhase.TilePlace;
-					tilePlacePhase().beginPhase();
-					break;
-				case TilePlace:
-					phase = GamePhase.RoleChoose;
-					roleChoicePhase().beginPhase();
-					break;
-				case RoleChoose:
-					phase = GamePhase.WorkerPlace;
-					placeWorkerPhase().beginPhase();
-					break;
-				case WorkerPlace:
-					if(queue.size() > numPlayers + 1){
-						phase = GamePhase.TileChoose;
-						tileChoicePhase().beginPhase();
-					}
-					else {
-						announcement.setText("The Game Is Over");
-					}
-				}
+				PlayerChoicePhase<Integer> p = choicePhase(engine.phase());
+				if(p != null)
+					p.beginPhase();
+				else
+					gameOver();
 
 				return true;
 			}
 		};
 	
+	// The UI for one of the engine's phases, null for GameOver
+	PlayerChoicePhase<Integer> choicePhase(GameEngine.Phase phase){
+		switch(phase){
+		case TileChoose:
+			return tileChoicePhase();
+		case TilePlace:
+			return tilePlacePhase();
+		case RoleChoose:
+			return roleChoicePhase();
+		case WorkerPlace:
+			return placeWorkerPhase();
+		default:
+			return null;
+		}
+	}
+	
+	void gameOver(){
+		// Nothing to come back to
+		Gdx.files.local(SAVE_FILE).delete();
+		
+		if(rematch == null || replay != null){
+			announcement.setText("The Game Is Over");
+			return;
+		}
+		
+		announcement.setText("The Game Is Over - tap for a rematch");
+		stage.addListener(new ClickListener(){
+			public void clicked(InputEvent event, float x, float y){
+				// Swapping screens from inside our own stage's event is asking for trouble
+				if(!rematchRequested){
+					rematchRequested = true;
+					Gdx.app.postRunnable(rematch);
+				}
+			}
+		});
+	}
+	
 	
 	void beginRound(){
 		// TODO: Have an explicit phase ordering somewhere...
 		tileChoicePhase().beginPhase();
 	}
 
-	// Used in place of delay to speed/slow actions for smoke testing
+	// Used in place of delay to speed/slow actions for smoke testing and replays
 	Action ui_delay(float f){
-		return delay(f);
+		return delay(f * uiDelayScale);
+	}
+	
+	// All moves go through here so they get logged
+	void applyMove(int move){
+		engine.apply(move);
+		
+		if(replayLog != null)
+			replayLog.record(move);
+	}
+	
+	// Logs are named after the game's seed, so a resumed game can find its log again
+	FileHandle replayLogFile(){
+		return Gdx.files.local("replays/" + Long.toHexString(engine.seed) + ".tdr");
+	}
+	
+	void startReplayLog(){
+		int[] types = new int[numPlayers];
+		for(int i = 0; i < numPlayers; i++){
+			types[i] = players.get(i).type.ordinal();
+		}
+		
+		try {
+			FileHandle f = replayLogFile();
+			replayLog = new ReplayLog.Writer(f.write(false), engine, initQueueSize, types);
+		}
+		catch(GdxRuntimeException e){
+			Gdx.app.error("GameScreen", "Can't write a replay log, carrying on without", e);
+		}
+	}
+	
+	// Carry on writing a saved game's log, if it's still there
+	void resumeReplayLog(){
+		try {
+			FileHandle f = replayLogFile();
+			if(f.exists())
+				replayLog = new ReplayLog.Writer(f.write(true));
+		}
+		catch(GdxRuntimeException e){
+			Gdx.app.error("GameScreen", "Can't append to the replay log, carrying on without", e);
+		}
+	}
+	
+	// Save the game so far, or get rid of the save if there's nothing to come back to
+	void saveGame(){
+		FileHandle f = Gdx.files.local(SAVE_FILE);
+		
+		if(replay != null)
+			return;
+		
+		// A resumed game appends to its log, so the log must have every move the save
+		// does - wait for it to be written out first
+		if(replayLog != null){
+			try {
+				replayLog.flush().get();
+			}
+			catch(Error e){
+				Gdx.app.error("GameScreen", "Replay log incomplete", e);
+			}
+		}
+		
+		if(engine.isOver()){
+			f.delete();
+			return;
+		}
+		
+		try {
+			long start = System.nanoTime();
+			SaveGame.write(engine, f);
+			Gdx.app.debug("GameScreen", "Saved in " + (System.nanoTime() - start) / 1000 + "us");
+		}
+		catch(GdxRuntimeException e){
+			Gdx.app.error("GameScreen", "Couldn't save the game", e);
+		}
 	}
 	
 	public void dispose() {
+		// Throw away any decision in progress
+		if(pendingDecision != null)
+			pendingDecision.cancel();
+		cpuWorker.shutdownNow();
+		
+		if(mcts != null)
+			mcts.dispose();
+		
+		// Finishes writing in the background; the log reports any failure itself
+		if(replayLog != null)
+			replayLog.close();
+		
+		wake.cancel();
 		stage.dispose();
+		tileBoard.dispose();
+		
+		Assets.release();
 	}
 
 	public void render(float delta) {		
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 				
+		hud.beginFrame(delta);
+		
 		stage.act(Gdx.graphics.getDeltaTime());
 		stage.draw();
+		
+		hud.endFrame();
+		
+		if(!Gdx.graphics.isContinuousRendering())
+			scheduleNextFrame();
 	}
 
 	public void resize(int width, int height) {
@@ -194,19 +378,89 @@ public class GameScreen implements Screen {
 	}
 
 	public void pause() {
+		saveGame();
 	}
 
 	public void resume() {
+		// In case the GL context went while we were away
+		tileBoard.invalidateOverview();
+		Gdx.graphics.requestRendering();
 	}
 	
 	public void show() {
-		// TODO Auto-generated method stub
-		
+		Gdx.graphics.setContinuousRendering(!RENDER_ON_DEMAND);
+		Gdx.graphics.requestRendering();
 	}
 
 	public void hide() {
-		// TODO Auto-generated method stub
+		wake.cancel();
+		Gdx.graphics.setContinuousRendering(true);
+	}
+	
+	/*
+	 * RENDERING ON DEMAND
+	 * 
+	 * With continuous rendering off, the backends draw a frame for input and posted
+	 * runnables, and we ask for the rest: engine moves, CPU decisions coming back
+	 * (from the cpu thread), scroll panes moving, and stage actions. Most actions
+	 * are delays, which only need a frame when they run out, so rather than ticking
+	 * them every frame a Timer wakes us up then. Anything else gets the next frame.
+	 */
+	
+	// An action that knows when it next needs to act
+	static abstract class WaitingAction extends Action {
+		// Seconds until act needs calling again, 0 for next frame
+		abstract float wakeIn();
+	}
+	
+	void scheduleNextFrame(){
+		float next = hud.isVisible() ? 0 : Float.POSITIVE_INFINITY;
+		
+		Array<Action> actions = stage.getRoot().getActions();
+		for(int i = 0; i < actions.size && next > 0; i++){
+			next = java.lang.Math.min(next, wakeIn(actions.get(i)));
+		}
+		
+		for(int i = 0; i < panes.size && next > 0; i++){
+			ScrollPane p = panes.get(i);
+			boolean overscrolled = p.getScrollX() < 0 || p.getScrollX() > p.getMaxX() || p.getScrollY() < 0 || p.getScrollY() > p.getMaxY();
+			
+			if(p.isFlinging() || p.isPanning() || overscrolled || 
+					p.getVisualScrollX() != p.getScrollX() || p.getVisualScrollY() != p.getScrollY())
+				next = 0;
+		}
+		
+		wake.cancel();
+		
+		if(next <= 0)
+			Gdx.graphics.requestRendering();
+		else if(next != Float.POSITIVE_INFINITY)
+			Timer.schedule(wake, next);
+	}
+	
+	// Seconds until a stage action needs to act
+	float wakeIn(Action a){
+		if(a instanceof WaitingAction)
+			return ((WaitingAction) a).wakeIn();
+		
+		if(a instanceof DelayAction){
+			DelayAction d = (DelayAction) a;
+			return d.getTime() < d.getDuration() ? d.getDuration() - d.getTime() : 0;
+		}
+		
+		// The current step is the first delay that hasn't run out, or whatever follows the last one that has
+		if(a instanceof SequenceAction){
+			Array<Action> steps = ((SequenceAction) a).getActions();
+			for(int i = 0; i < steps.size; i++){
+				Action s = steps.get(i);
+				if(s instanceof DelayAction && ((DelayAction) s).getTime() >= ((DelayAction) s).getDuration())
+					continue;
+				
+				return wakeIn(s);
+			}
+		}
 		
+		return 0;
 	}
 
 	/*
@@ -219,7 +473,7 @@ public class GameScreen implements Screen {
 		void initHumanLongChoice(int player);
 		Choice completeHumanChoice(int player);
 		
-		void initCPUChoice(int player);
+		void initCPUChoice(int player, int move);
 		Choice completeCPUChoice(int player);
 		void applyPlayerChoice(int player, Choice c);
 		void initRound();
@@ -257,7 +511,10 @@ public class GameScreen implements Screen {
 		}
 		
 		void beginPlayerChoice(int player){
-			if(players.get(player).type == PlayerType.LocalCPU){
+			if(replay != null){
+				beginReplayChoice(player);
+			}
+			else if(players.get(player).type != PlayerType.LocalHuman){
 				beginCPUChoice(player);
 			}
 			else {
@@ -266,24 +523,71 @@ public class GameScreen implements Screen {
 		}
 		
 		// Computer player X selects a tile.
-		// Highlight tile and wait 3 seconds, then move on.
+		// The decision is made in the background; highlight it as soon as it's back, 
+		// and move on once 3 seconds are up. 
 		void beginCPUChoice(final int player){
-			phase.initCPUChoice(player);
+			final Background.Pending<Integer> decision = decideCPUMove(player);
 			
-			stage.addAction(sequence(ui_delay(3.0f), new Action(){
-				public boolean act(float f){
+			stage.addAction(new WaitingAction(){
+				float time = 0;
+				boolean decided = false;
+				
+				// The decision coming back asks for a frame itself
+				float wakeIn(){
+					return java.lang.Math.max(0, (decided ? CPU_THINK_TIME : CPU_THINK_TIME + CPU_GRACE_TIME) - time);
+				}
+				
+				public boolean act(float delta){
+					time += delta;
+					
+					if(!decided){
+						if(!decision.isDone() && time < CPU_THINK_TIME + CPU_GRACE_TIME)
+							return false;
+						
+						phase.initCPUChoice(player, cpuResult(decision));
+						decided = true;
+					}
+					
+					if(time < CPU_THINK_TIME)
+						return false;
+					
 					Choice c = phase.completeCPUChoice(player);
 
 					completePlayerChoice(player, c);
 					
 					return true;
 				}
-			}));		
+			});
 		}
 
-		void completePlayerChoice(int player, Choice c){
-			// Test: Move first tile in queue to first spot in lastRow
+		// Replaying: the move comes from the log and is shown like a CPU's
+		void beginReplayChoice(final int player){
+			if(!replay.hasNext()){
+				announcement.setText("End of replay");
+				return;
+			}
+			
+			phase.initCPUChoice(player, replay.next());
+			
+			stage.addAction(sequence(ui_delay(CPU_THINK_TIME), new Action(){
+				public boolean act(float delta){
+					completePlayerChoice(player, phase.completeCPUChoice(player));
+					
+					return true;
+				}
+			}));
+		}
+
+		// Pick up part way through the phase, at player's choice (restoring a saved game)
+		void resumePhase(int player){
+			announcement.setText("");
+			
+			phase.initRound();
 			
+			beginPlayerChoice(player);
+		}
+
+		void completePlayerChoice(int player, Choice c){
 			phase.applyPlayerChoice(player, c);
 			
 			if(player + 1 >= numPlayers){
@@ -349,25 +653,25 @@ public class GameScreen implements Screen {
 				new PlayerChoiceHandler<Integer>() {
 					int choice;
 					
-					public void initCPUChoice(int player){
-						choice = randomAvailableTile(player);
+					public void initCPUChoice(int player, int move){
+						choice = move;
 		
-						tileQueue.selection = new HighlightTile(0, choice);
+						tileQueue.setSelection(new HighlightTile(0, choice));
 					}
 					
 					public Integer completeCPUChoice(int player){
-						tileQueue.selection = null;
+						tileQueue.setSelection(null);
 						
 						return choice;
 					}
 					
 					public void applyPlayerChoice(int player, Integer queueIndex){
-						playerStates.get(player).currentTile = queue.get(queueIndex);
-						queue.set(queueIndex, Tile.Empty);
+						applyMove(queueIndex);
 					}
 					
 					public void roundOver(){
-						shiftTileQueue();
+						// The engine has shifted the queue along
+						tileQueue.resizeBoard(queueWindow(), 1);
 					}
 					
 					public void initHumanChoice(int player){
@@ -376,9 +680,9 @@ public class GameScreen implements Screen {
 						// We will usually want clicked to act more like a "select" constrained by tileSelectable...
 						// Question is "always" or not
 						
-						tileQueue.selection = new Board.Selection(){
+						tileQueue.setSelection(new Board.Selection(){
 							boolean tileSelectable(int row, int column){
-								return column < numPlayers + 1 && queue.get(column) != Tile.Empty;
+								return engine.isLegal(column);
 							}
 							
 							void selected(int row, int column){
@@ -389,16 +693,17 @@ public class GameScreen implements Screen {
 								return column == choice ? Highlight :
 									tileSelectable(row, column) ? Select : None;
 							}
-						};
+						});
 					}
 					
 					public void initHumanLongChoice(int player){
-						choice = defaultTileIndex();
+						choice = engine.defaultMove();
+						tileQueue.invalidateDecorations();
 					}
 					
 					public Integer completeHumanChoice(int player){
 						announcement.setText("");
-						tileQueue.selection = null;
+						tileQueue.setSelection(null);
 						
 						return choice;
 					}
@@ -418,27 +723,28 @@ public class GameScreen implements Screen {
 					int choice = -1;
 					
 					public void initRound(){
-						addRow();
+						// The engine has added a row
+						tileBoard.resizeBoard(numPlayers + 1, engine.lastRow() + 1);
 					}
 
 					public void roundOver(){}
 
-					public void initCPUChoice(int player){
-						choice = cpuChooseRandomColumn(player, true);
-						tileBoard.selection = new HighlightTile(0, choice);
+					public void initCPUChoice(int player, int move){
+						choice = move;
+						tileBoard.setSelection(new HighlightTile(0, choice));
 					}
 					
 					public Integer completeCPUChoice(int player){
-						tileBoard.selection = null;
+						tileBoard.setSelection(null);
 						return choice;
 					}
 					
 					public void initHumanChoice(int player){
 						choice = -1;
 						
-						tileBoard.selection = new Board.Selection(){
+						tileBoard.setSelection(new Board.Selection(){
 							boolean tileSelectable(int row, int column){
-								return row == 0 && column < numPlayers + 1 && tiles[lastRow][column] == Tile.Empty;
+								return row == 0 && engine.isLegal(column);
 							}
 							
 							void selected(int row, int column){
@@ -449,15 +755,16 @@ public class GameScreen implements Screen {
 								return row == 0 && column == choice ? Highlight :
 									tileSelectable(row, column) ? Select : None;
 							}
-						};
+						});
 					}
 					
 					public void initHumanLongChoice(int player){
-						choice = defaultColumn(true);
+						choice = engine.defaultMove();
+						tileBoard.invalidateDecorations();
 					}
 					
 					public Integer completeHumanChoice(int player){
-						tileBoard.selection = null;
+						tileBoard.setSelection(null);
 						return choice;
 					}
 					
@@ -467,144 +774,71 @@ public class GameScreen implements Screen {
 					
 					
 					public void applyPlayerChoice(int player, Integer column){
-						Tile t = playerStates.get(player).currentTile;
-						playerStates.get(player).currentTile = Tile.Empty;
-						
-						tiles[lastRow][column] = t;
+						applyMove(column);
 					}
 				});
 	}
 	
-	PlayerChoicePhase<Pair> roleChoicePhase(){
-		return new PlayerChoicePhase<Pair>("Role choice round", "Pick a role. >3s for speed bonus!", "Pick a role. You have 12s.",
+	PlayerChoicePhase<Integer> roleChoicePhase(){
+		return new PlayerChoicePhase<Integer>("Role choice round", "Pick a role. >3s for speed bonus!", "Pick a role. You have 12s.",
 				nextPhase,
-				new PlayerChoiceHandler<Pair>(){
-					Pair choice;
+				new PlayerChoiceHandler<Integer>(){
+					// A GameEngine role move, -1 for none yet
+					int choice;
 					
 					public void initRound(){
 						roleChooseLayer.setVisible(true);
-						setAllRoles();
 					}
 					
-					public void initCPUChoice(int player){
-						choice = cpuChooseRandomRole(player);
-						roleChoose.selection = new HighlightTile(1 - choice.row, choice.col);
+					public void initCPUChoice(int player, int move){
+						choice = move;
+						roleChoose.setSelection(new HighlightTile(1 - GameEngine.roleHalf(choice), GameEngine.roleColumn(choice)));
 					}
 					
-					public Pair completeCPUChoice(int player){
-						roleChoose.selection = null;
+					public Integer completeCPUChoice(int player){
+						roleChoose.setSelection(null);
 						return choice;
 					}
 					
 					public void initHumanChoice(int player){
-						choice = null;
+						choice = -1;
 						
-						roleChoose.selection = new Board.Selection(){
+						roleChoose.setSelection(new Board.Selection(){
 							boolean tileSelectable(int row, int column){
-								return roles[1 - row][column] != Role.Empty;
+								return engine.isLegal(GameEngine.roleMove(1 - row, column));
 							}
 							
 							void selected(int row, int column){
-								choice = new Pair(1 - row, column);
+								choice = GameEngine.roleMove(1 - row, column);
 							}
 							
 							TileDecoration tileDecoration(int row, int column){
-								return new Pair(1 - row, column).equals(choice) ? Highlight :
+								return GameEngine.roleMove(1 - row, column) == choice ? Highlight :
 									tileSelectable(row, column) ? Select : None;
 							}
-						};
+						});
 					}
 					
 					public void initHumanLongChoice(int player){
-						choice = defaultRole(player);
+						choice = engine.defaultMove();
+						roleChoose.invalidateDecorations();
 					}
 					
-					public Pair completeHumanChoice(int player){
-						roleChoose.selection = null;
+					public Integer completeHumanChoice(int player){
+						roleChoose.setSelection(null);
 						return choice;
 					}
 					
 					public boolean humanMadeChoice(int player){
-						return choice != null;
+						return choice != -1;
 					}
 					
 					public void roundOver(){
 						roleChooseLayer.setVisible(false);
 					}
 					
-					public void applyPlayerChoice(int player, Pair role){
-						Role r = roles[1 - role.row][role.col];
-						playerStates.get(player).numWorkers += r.workers();
-						
-						for(PointYield py : r.points()){
-							playerStates.get(player).score += py.points * countPlayerRegions(player, py.tile); 
-						}
-						
-						roles[0][role.col] = Role.Empty;
-						roles[1][role.col] = Role.Empty; 
-					}
-					
-					// Expand from i,j outward on only Tile t, adding to seen list.
-					// If player is encountered, return true after crawl
-					boolean crawlAndCheck(List<Pair> seen, int i, int j, Tile t, int player){
-						boolean foundPlayerWorker = false;
-						
-						// These will not be large... TODO: Sets or whatever.
-						List<Pair> visited = new ArrayList<Pair>();
-						List<Pair> frontier = new ArrayList<Pair>();
-						
-						frontier.add(new Pair(i,j));
-						
-						while(frontier.size() > 0){
-							Pair p = frontier.get(0);
-							frontier.remove(p);
-							if(!visited.contains(p)) visited.add(p);
-							
-							// Add to frontier in four directions...
-							expandFrontier(frontier, visited, p, i + 1, j, t);
-							expandFrontier(frontier, visited, p, i - 1, j, t);
-							expandFrontier(frontier, visited, p, i, j + 1, t);
-							expandFrontier(frontier, visited, p, i, j - 1, t);
-							
-							if(workers[player][p.row][p.col])
-								foundPlayerWorker = true;
-						}
-						
-						for(Pair p : visited){
-							seen.add(p);
-						}
-						
-						return foundPlayerWorker;
-					}
-					
-					void expandFrontier(List<Pair> frontier, List<Pair> visited, Pair center, int i, int j, Tile t){
-						Pair p = new Pair(center.row + i, center.col + j);
-						
-						if(p.row >= 0 && p.col >= 0 && tiles.length > p.row && tiles[p.row].length > p.col && 
-								tiles[p.row][p.col] == t && !visited.contains(p)){
-							frontier.add(p);
-						}
-					}
-					
-					// 
-					int countPlayerRegions(int player, Tile t){
-						// Starting at 0,0, when we encounter this tile, if it has not been seen, 
-						// spread out to all unseen tiles, adding all to alreadySeen. If any workers
-						// for this player is in this region, add ONLY one to count.
-						List<Pair> alreadySeen = new ArrayList<Pair>();
-						int regions = 0;
-						
-						for(int i = 0; i < numPlayers + 1; i++){
-							for(int j = 0; j < tiles[i].length; j++){
-								if(tiles[i][j] == t && 
-										!alreadySeen.contains(new Pair(i,j)) && 
-										crawlAndCheck(alreadySeen,i,j,t,player)){
-									regions += 1;
-								}
-							}
-						}
-						
-						return regions;
+					public void applyPlayerChoice(int player, Integer role){
+						applyMove(role);
 					}
 				});
 	}
@@ -616,29 +850,23 @@ public class GameScreen implements Screen {
 					public void initRound(){}
 					public void roundOver(){}
 					
+					// Column, or null for no worker
 					Integer choice;
 			
 					public void applyPlayerChoice(int player, Integer column){
-						if(column != null) {
-							if(playerStates.get(player).numWorkers <= 0)
-								throw new Error("Able to place worker without any!");
-							
-							workers[player][lastRow][column] = true;
-							playerStates.get(player).numWorkers -= 1;
-						}
+						applyMove(column == null ? GameEngine.PASS : column);
 					}
 			
 					// CPU Choice
-					public void initCPUChoice(int player){
-						choice = playerStates.get(player).numWorkers > 0 ? 
-								cpuChooseRandomColumn(player, false) : null; 
+					public void initCPUChoice(int player, int move){
+						choice = move == GameEngine.PASS ? null : move;
 						
 						if(choice != null)
-							tileBoard.selection = new HighlightTile(0, choice);
+							tileBoard.setSelection(new HighlightTile(0, choice));
 					}
 					
 					public Integer completeCPUChoice(int player){
-						tileBoard.selection = null;
+						tileBoard.setSelection(null);
 						return choice;
 					}
 					
@@ -646,9 +874,9 @@ public class GameScreen implements Screen {
 					public void initHumanChoice(final int player){
 						choice = null;
 						
-						tileBoard.selection = new Board.Selection(){
+						tileBoard.setSelection(new Board.Selection(){
 							boolean tileSelectable(int row, int column){
-								return row == 0 && tiles[lastRow - row][column] != Tile.Empty && playerStates.get(player).numWorkers > 0;
+								return row == 0 && engine.isLegal(column);
 							}
 							
 							void selected(int row, int column){
@@ -659,7 +887,7 @@ public class GameScreen implements Screen {
 								return choice != null && row == 0 && choice.equals(column) ? Highlight :
 									tileSelectable(row, column) ? Select : None;
 							}
-						};
+						});
 					}
 					
 					public void initHumanLongChoice(int player){
@@ -667,7 +895,7 @@ public class GameScreen implements Screen {
 					}
 					
 					public Integer completeHumanChoice(int player){
-						tileBoard.selection = null;
+						tileBoard.setSelection(null);
 			
 						return choice;
 					}
@@ -679,113 +907,57 @@ public class GameScreen implements Screen {
 	}
 
 	/*
-	 *  CPU CHOICE AND PLAYER DEFAULTS
+	 *  CPU CHOICE
 	 */
-
-	// Return all indices in the first N that either DO (emptyAvailable) or DONT (!emptyAvailable) match the empty value.
-	<T extends Board.TileSet> List<Integer> availableIndices(List<T> ts, int n, boolean emptyAvailable) {
-		List<Integer> indices = new ArrayList<Integer>();
-		for(int i = 0; i < n; i++){
-			if(emptyAvailable && ts.get(i).IsEmpty()){
-				indices.add(i);
-			}
-			else if(!emptyAvailable && !ts.get(i).IsEmpty()){
-				indices.add(i);
-			}
-		}
-		return indices;
-	}
 	
-	<T> T random(List<T> ts){
-		if(ts.size() == 0)
-			throw new Error("Empty list in random");
+	// Start working out player's move on a snapshot of the engine
+	Background.Pending<Integer> decideCPUMove(final int player){
+		final GameEngine state = new GameEngine(engine);
+		final long seed = random.nextLong();
 		
-		return ts.get(random.nextInt(ts.size()));
-	}
-	
-	<T> T first(List<T> ts){
-		if(ts.size() == 0)
-			throw new Error("Empty list in first");
+		pendingDecision = cpuWorker.submit(new Background.Task<Integer>(){
+			public Integer run(){
+				try {
+					return cpuMove(player, state, seed);
+				}
+				finally {
+					Gdx.graphics.requestRendering();
+				}
+			}
+		});
 		
-		return ts.get(0);
-	}
-
-	// Give an index into the queue of tile choice for CPU player 
-	// Currently random.
-	int randomAvailableTile(int player){
-		return random(availableIndices(queue, numPlayers + 1, false));
+		return pendingDecision;
 	}
 	
-	int defaultTileIndex(){
-		return first(availableIndices(queue, numPlayers + 1, false));
-	}
-	
-	int cpuChooseRandomColumn(int player, boolean selectEmpty){
-		return random(availableIndices(Arrays.asList(tiles[lastRow]), numPlayers + 1, selectEmpty));
-	}
-	
-	int defaultColumn(boolean emptyAvailable){
-		return first(availableIndices(Arrays.asList(tiles[lastRow]), numPlayers + 1, emptyAvailable));
-	}
-	
-	Pair cpuChooseRandomRole(int player){
-		return new Pair(random.nextBoolean() ? 0 : 1, // Randomly choose top or bottom of role
-				random(availableIndices(Arrays.asList(roles[0]), 5, false))); // Randomly choose available role
-	}
-	
-	Pair defaultRole(int player){
-		return new Pair(1, availableIndices(Arrays.asList(roles[0]), 5, false).get(0));
-	}
-
-	/*
-	 *  HANDLE TILE BOARD, QUEUE, ROLES, WORKERS 
-	 */
-	
-	void setAllRoles(){
-		roles = new Role[][] { 
-				{ Role.FieldTop, Role.PastureTop, Role.VillageTop, Role.ManorTop, Role.ForestTop },
-				{ Role.FieldBottom, Role.PastureBottom, Role.VillageBottom, Role.ManorBottom, Role.ForestBottom }
-		};
-	}
-
-	void addRow(){
-		lastRow++;
-		tileBoard.resizeBoard(numPlayers + 1, lastRow + 1);
-		fillLastRow(Tile.Empty);
-	}
-	
-	// Fill last row of tiles with just t (usually Tile.Empty)
-	void fillLastRow(Tile t){
-		for(int i = 0; i < tiles[lastRow].length; i++){
-			tiles[lastRow][i] = t;
+	// The decision if it made it, otherwise give up on it and move randomly
+	int cpuResult(Background.Pending<Integer> decision){
+		if(decision.isDone()){
+			try {
+				return decision.get();
+			}
+			catch(Error e){
+				Gdx.app.error("GameScreen", "CPU decision failed", e);
+			}
 		}
-	}
-	
-	// Add 50 random tiles to the queue
-	void fillTileQueue(){
-		java.util.List<Tile> tileValues = Arrays.asList(Tile.values());
-		Random r = new Random();
-			  
-		for(int i = 0; i < initQueueSize; i++){
-			// + 1 dodges the Empty tile
-			// Not sure if this is supposed to work
-			queue.add(tileValues.get(r.nextInt(tileValues.size() - 1) + 1));
+		else {
+			decision.cancel();
+			Gdx.app.log("GameScreen", "CPU decision late, moving randomly");
 		}
+		
+		return engine.randomMove(random);
 	}
 	
-	// Move blanks off the front of the queue
-	// Error if tile queue ends up short.
-	void shiftTileQueue(){
-		for(int checked = 0, i = 0; checked < numPlayers + 1; checked++){
-			if(queue.get(i) == Tile.Empty){
-				queue.remove(i);
-			}
-			else {
-				i++;
-			}
-		}
+	// Runs on cpuWorker - must only touch state, which nothing else has
+	int cpuMove(int player, GameEngine state, long seed){
+		if(players.get(player).type != PlayerType.LocalMCTS)
+			return state.randomMove(new Random(seed));
 		
-		tileQueue.resizeBoard(queue.size(), 1);
+		int move = mcts.chooseMove(state, (long) (MCTS_BUDGET * 1e9));
+		
+		Gdx.app.log("Mcts", String.format("%s: %d playouts, %.0f/s", 
+				players.get(player).name, mcts.lastPlayouts, mcts.lastPlayoutsPerSecond));
+		
+		return move;
 	}
 	
 	/*
@@ -801,31 +973,30 @@ public class GameScreen implements Screen {
 	ScrollPane scrollPane(Actor a){
 		ScrollPane sp = new ScrollPane(a);
 		sp.setTouchable(Touchable.childrenOnly);
+		panes.add(sp);
 		return sp;
 	}
 
 	Actor makeTileBoard(){
-		tileBoard = new Board<Tile,Worker>(numPlayers + 1,1,200f,50f,"tileBoard"){
+		tileBoard = new Board<Tile,Worker>(numPlayers + 1,engine.lastRow() + 1,200f,50f,"tileBoard"){
 			Tile tileAt(int row, int col){
-				return tiles[lastRow - row][col];
+				return Tile.of(engine.tileAt(engine.lastRow() - row, col));
 			}
 			
-			// This... is not really a good thing to do every frame.
-			// for every tile. Need an array/filter backed List class...
-			List<Worker> piecesAt(int row, int col){
-				ArrayList<Worker> tileWorkers = new ArrayList<Worker>();
-				
-				for(int i = 0; i < numPlayers; i++){
-					if(workers[i][lastRow - row][col]) {
-						tileWorkers.add(players.get(i).worker);
-					}
+			// Every row but the one being played on is finished with
+			int frozenRows(){
+				return engine.lastRow();
+			}
+			
+			void piecesAt(int row, int col, Array<Worker> out){
+				for(int mask = engine.playersAt(engine.lastRow() - row, col); mask != 0; mask &= mask - 1){
+					out.add(players.get(Integer.numberOfTrailingZeros(mask)).worker);
 				}
-				
-				return tileWorkers;
 			}
 		};
+		tileBoard.setRetained(true);
 		
-		ScrollPane p = scrollPane(container(tileBoard).pad(100f).center());
+		final ScrollPane p = scrollPane(container(tileBoard).pad(100f).center());
 		ScrollPaneStyle s = new ScrollPaneStyle(new TiledDrawable(Assets.bg), null, null, null, null);
 		p.setStyle(s);
 		
@@ -834,20 +1005,88 @@ public class GameScreen implements Screen {
 		p.setFlickScroll(true);
 		p.setFillParent(true);
 		
+		// Zoom: pinch, or the mouse wheel with Ctrl held (the plain wheel scrolls)
+		p.addListener(new ActorGestureListener(){
+			float startSize;
+			
+			public void touchDown(InputEvent event, float x, float y, int pointer, int button){
+				startSize = tileBoard.tileSize;
+			}
+			
+			public void zoom(InputEvent event, float initialDistance, float distance){
+				zoomTileBoard(p, startSize * distance / initialDistance);
+			}
+		});
+		p.addCaptureListener(new InputListener(){
+			public boolean scrolled(InputEvent event, float x, float y, int amount){
+				if(!Gdx.input.isKeyPressed(Keys.CONTROL_LEFT) && !Gdx.input.isKeyPressed(Keys.CONTROL_RIGHT))
+					return false;
+				
+				zoomTileBoard(p, tileBoard.tileSize * (float) java.lang.Math.pow(ZOOM_STEP, -amount));
+				event.stop();
+				return true;
+			}
+		});
+		
 		return p;
 	}
 	
+	// Board sizes, in pixels a tile. Zoomed out past Board.OVERVIEW_TILE_SIZE the
+	// finished rows become a single picture, so any length of game is cheap to look at.
+	static final float MIN_TILE_SIZE = 8f, MAX_TILE_SIZE = 200f, ZOOM_STEP = 1.15f;
+	
+	// Keeping whatever's in the middle of the pane in the middle
+	void zoomTileBoard(ScrollPane p, float size){
+		size = java.lang.Math.max(MIN_TILE_SIZE, java.lang.Math.min(MAX_TILE_SIZE, size));
+		if(size == tileBoard.tileSize)
+			return;
+		
+		float px = p.getScrollPercentX(), py = p.getScrollPercentY();
+		
+		tileBoard.setTileSize(size);
+		p.layout();
+		p.setScrollPercentX(px);
+		p.setScrollPercentY(py);
+		p.updateVisualScroll();
+		
+		Gdx.graphics.requestRendering();
+	}
+	
 	Actor makeAnnouncementLayer(){
-		announcement = new Label("Announcement", new Label.LabelStyle(new BitmapFont(), Color.BLACK));
+		announcement = new Label("Announcement", new Label.LabelStyle(Assets.font, Color.BLACK));
 		announcement.setAlignment(Align.center);
 		
 		return container(announcement).padTop(100f).top();
 	}
 	
+	Actor makePerfHudLayer(){
+		hud = new PerfHud(engine, tileBoard, tileQueue, roleChoose);
+		hud.setBatch(stage.getBatch());
+		
+		// Otherwise Android keeps Menu to itself
+		Gdx.input.setCatchMenuKey(true);
+		
+		stage.addListener(new InputListener(){
+			public boolean keyDown(InputEvent event, int keycode){
+				if(keycode != Keys.F3 && keycode != Keys.MENU)
+					return false;
+				
+				hud.toggle();
+				return true;
+			}
+		});
+		
+		return container(hud).pad(10f).top().left();
+	}
+	
+	int queueWindow(){
+		return java.lang.Math.min(engine.queueSize(), QUEUE_WINDOW);
+	}
+	
 	Actor makeTileQueueLayer(){
-		tileQueue = new Board<Tile,Tile>(initQueueSize,1,100f,0f,"tileQueue"){
+		tileQueue = new Board<Tile,Tile>(queueWindow(),1,100f,0f,"tileQueue"){
 			Tile tileAt(int row, int col){
-				return queue.get(col);
+				return Tile.of(engine.queueAt(col));
 			}
 		};
 		
@@ -860,7 +1099,7 @@ public class GameScreen implements Screen {
 	Actor makeChooseRoleLayer(){
 		roleChoose = new Board<Role,Role>(5,2,150f,0f,"chooseRole"){
 			Role tileAt(int row, int col){
-				return roles[1 - row][col];	
+				return engine.roleAvailable(col) ? Role.of(1 - row, col) : Role.Empty;
 			}
 		};
 		
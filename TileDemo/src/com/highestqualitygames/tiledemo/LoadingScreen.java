@@ -0,0 +1,73 @@
+package com.highestqualitygames.tiledemo;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+
+/*
+Shown while an AssetManager loads. Nothing here needs loading itself: it's a bar
+drawn with a ShapeRenderer.
+
+AssetManager decodes files on its own thread; update() does the GL side (texture
+uploads etc) one step at a time, and we only give it UPDATE_MILLIS a frame so the
+bar keeps moving. When everything's in, done runs - it's expected to set the next
+screen, after which this one can be disposed.
+ */
+
+public class LoadingScreen implements Screen {
+	static final int UPDATE_MILLIS = 12;
+
+	final AssetManager manager;
+	final Runnable done;
+	ShapeRenderer shapes;
+	boolean finished;
+
+	public LoadingScreen(AssetManager manager, Runnable done){
+		this.manager = manager;
+		this.done = done;
+		shapes = new ShapeRenderer();
+	}
+
+	public void render(float delta){
+		if(finished)
+			return;
+
+		if(manager.update(UPDATE_MILLIS)){
+			finished = true;
+			done.run();
+			return;
+		}
+
+		Gdx.gl.glClearColor(0, 0, 0, 1);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+		float w = Gdx.graphics.getWidth(), h = Gdx.graphics.getHeight();
+		float barWidth = w * 0.6f, barHeight = 12f;
+		float x = (w - barWidth) / 2, y = (h - barHeight) / 2;
+
+		shapes.getProjectionMatrix().setToOrtho2D(0, 0, w, h);
+		shapes.begin(ShapeType.Filled);
+		shapes.setColor(0.25f, 0.25f, 0.25f, 1);
+		shapes.rect(x, y, barWidth, barHeight);
+		shapes.setColor(1, 1, 1, 1);
+		shapes.rect(x, y, barWidth * manager.getProgress(), barHeight);
+		shapes.end();
+	}
+
+	public void resize(int width, int height){}
+
+	public void show(){}
+
+	public void hide(){}
+
+	public void pause(){}
+
+	public void resume(){}
+
+	public void dispose(){
+		shapes.dispose();
+	}
+}
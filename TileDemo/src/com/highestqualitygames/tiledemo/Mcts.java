@@ -0,0 +1,233 @@
+package com.highestqualitygames.tiledemo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/*
+Monte Carlo Tree Search over GameEngine, for the LocalMCTS CPU player.
+
+Root parallel: each worker thread grows its own UCT tree from its own copy of the
+position until the time budget runs out, then root visit counts are summed and the
+most visited move wins. No shared tree means no locking, and the game is small
+enough that separate trees lose very little. The workers come from
+Background.platform, so without threads (GWT) there's one tree, searched in place.
+
+Each tree plays out on one scratch engine, set back to the root position every
+iteration rather than copied afresh.
+
+Playouts are random (GameEngine.randomMove) and every player is scored by their
+share of the win at the end, so each tree node picks moves for whoever is to move
+there - the usual multi-player "max^n" flavour of UCT.
+
+Stronger or weaker play is just a bigger or smaller time budget.
+ */
+
+class Mcts {
+	static final double EXPLORATION = 1.4;
+
+	final int threads;
+	private final Background.Workers pool;
+	private final Random seeds;
+
+	// Results of the last search, for tuning
+	long lastPlayouts;
+	double lastPlayoutsPerSecond;
+
+	public Mcts(int threads, long seed){
+		this.threads = java.lang.Math.max(1, threads);
+		seeds = new Random(seed);
+		
+		pool = Background.platform.newWorkers("mcts", this.threads, true);
+	}
+
+	// One thread per core, leaving one for rendering
+	public Mcts(long seed){
+		this(Background.platform.cores() - 1, seed);
+	}
+
+	static class Node {
+		final int player; // to move here
+		final int[] moves;
+		final int numMoves;
+		final Node[] children;
+		final double[] reward; // total reward for player, per move
+		final int[] visits; // per move
+		int totalVisits, expanded;
+
+		Node(GameEngine state){
+			player = state.currentPlayer();
+			moves = new int[state.maxMoves()];
+			numMoves = state.legalMoves(moves);
+			children = new Node[numMoves];
+			reward = new double[numMoves];
+			visits = new int[numMoves];
+		}
+
+		int select(){
+			// Try everything once first, in order
+			if(expanded < numMoves)
+				return expanded;
+
+			double logN = java.lang.Math.log(totalVisits);
+			int best = 0;
+			double bestValue = Double.NEGATIVE_INFINITY;
+
+			for(int i = 0; i < numMoves; i++){
+				double value = reward[i] / visits[i] + EXPLORATION * java.lang.Math.sqrt(logN / visits[i]);
+				if(value > bestValue){
+					bestValue = value;
+					best = i;
+				}
+			}
+
+			return best;
+		}
+	}
+
+	// Best move for the player to move in state. Blocks for about budgetNanos.
+	// Interrupting the caller stops the searches and throws Error.
+	public int chooseMove(GameEngine state, long budgetNanos){
+		final GameEngine root = new GameEngine(state);
+		final long start = System.nanoTime();
+		final long deadline = start + budgetNanos;
+
+		List<Search> searches = new ArrayList<Search>();
+		List<Background.Pending<Search>> pending = new ArrayList<Background.Pending<Search>>();
+		for(int t = 0; t < threads; t++){
+			final Search s = new Search(root, seeds.nextLong());
+			searches.add(s);
+			pending.add(pool.submit(new Background.Task<Search>(){
+				public Search run(){
+					s.run(deadline);
+					return s;
+				}
+			}));
+		}
+
+		Node merged = new Node(root);
+		long playouts = 0;
+
+		try {
+			for(Background.Pending<Search> p : pending){
+				Search s = p.get();
+				playouts += s.playouts;
+
+				for(int i = 0; i < merged.numMoves; i++){
+					merged.visits[i] += s.root.visits[i];
+				}
+			}
+		}
+		finally {
+			// Only still going if get threw
+			for(Search s : searches){
+				s.stopped = true;
+			}
+		}
+
+		lastPlayouts = playouts;
+		lastPlayoutsPerSecond = playouts / ((System.nanoTime() - start) / 1e9);
+
+		int best = 0;
+		for(int i = 1; i < merged.numMoves; i++){
+			if(merged.visits[i] > merged.visits[best]) best = i;
+		}
+
+		return merged.moves[best];
+	}
+
+	public void dispose(){
+		pool.shutdownNow();
+	}
+
+	// One thread's tree
+	static class Search {
+		final GameEngine rootState;
+		final Node root;
+		final Random random;
+		final GameEngine scratch;
+		final double[] result;
+		// The nodes and moves taken from the root this iteration. Games have no move
+		// limit, so these grow to fit the deepest line yet.
+		Node[] path = new Node[64];
+		int[] pathMoves = new int[64];
+		long playouts;
+		volatile boolean stopped;
+
+		Search(GameEngine state, long seed){
+			rootState = state;
+			root = new Node(state);
+			random = new Random(seed);
+			result = new double[state.numPlayers];
+			scratch = new GameEngine(state);
+		}
+
+		void run(long deadline){
+			// Always do at least one playout so there's a move to return
+			do {
+				iterate();
+				playouts++;
+			} while(System.nanoTime() < deadline && !stopped);
+		}
+
+		void iterate(){
+			GameEngine s = scratch;
+			s.set(rootState);
+			Node n = root;
+			int depth = 0;
+
+			// Select down the tree, adding one node at the first unexpanded move
+			while(n != null && n.numMoves > 0){
+				int i = n.select();
+				if(depth == path.length){
+					path = Arrays.copyOf(path, depth * 2);
+					pathMoves = Arrays.copyOf(pathMoves, depth * 2);
+				}
+				path[depth] = n;
+				pathMoves[depth] = i;
+				depth++;
+
+				s.apply(n.moves[i]);
+
+				if(i == n.expanded){
+					n.expanded++;
+					if(!s.isOver()) n.children[i] = new Node(s);
+					break;
+				}
+
+				n = n.children[i];
+			}
+
+			// Random playout
+			while(!s.isOver()){
+				s.apply(s.randomMove(random));
+			}
+
+			score(s);
+
+			for(int d = 0; d < depth; d++){
+				Node p = path[d];
+				int i = pathMoves[d];
+				p.visits[i]++;
+				p.totalVisits++;
+				p.reward[i] += result[p.player];
+			}
+		}
+
+		// Share of the win: 1 for an outright win, split on ties, 0 otherwise
+		void score(GameEngine s){
+			int best = Integer.MIN_VALUE, winners = 0;
+
+			for(int p = 0; p < s.numPlayers; p++){
+				int score = s.player(p).score;
+				if(score > best){ best = score; winners = 1; }
+				else if(score == best) winners++;
+			}
+
+			for(int p = 0; p < s.numPlayers; p++){
+				result[p] = s.player(p).score == best ? 1.0 / winners : 0.0;
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.highestqualitygames.tiledemo;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import com.highestqualitygames.tiledemo.GameEngine.Phase;
+
+/*
+Performance overlay for GameScreen. Toggle it with F3 (or Menu on Android).
+
+GameScreen calls beginFrame/endFrame around act+draw every frame, whether we're
+visible or not, and everything gets recorded into ring buffers allocated up front.
+The text is only rebuilt every REFRESH_TIME seconds into a reused StringBuilder, so
+the HUD being on shouldn't show up in the numbers it's showing.
+
+	frame   - frame to frame time percentiles over the last RING frames
+	work    - time spent in act+draw, same percentiles
+	draws   - SpriteBatch flushes last frame, and how many since the batch was made
+	<board> - cells visited and quads emitted by Board.draw last frame
+	heap    - Java heap allocation rate. Samples where a GC happened are skipped.
+	phase   - seconds spent in each engine phase so far
+ */
+
+public class PerfHud extends Widget {
+	static final int RING = 240;
+	static final float REFRESH_TIME = 0.5f;
+	static final Phase[] PHASES = Phase.values();
+
+	final GameEngine engine;
+	final Board<?,?>[] boards;
+	SpriteBatch batch;
+
+	// Ring buffers, in ms. frameCount is how many have ever been written.
+	final float[] frameTimes = new float[RING], workTimes = new float[RING];
+	final float[] sorted = new float[RING];
+	int frameCount;
+	long workStart;
+
+	int renderCalls, totalRenderCalls, lastTotalRenderCalls;
+
+	// Heap sampled at every refresh
+	long lastHeap;
+	float allocRate; // bytes per second
+
+	final float[] phaseTime = new float[PHASES.length];
+
+	float sinceRefresh = REFRESH_TIME;
+	final StringBuilder text = new StringBuilder(512);
+	final Color color = new Color(0, 0, 0, 1);
+
+	public PerfHud(GameEngine engine, Board<?,?>... boards){
+		this.engine = engine;
+		this.boards = boards;
+		setTouchable(Touchable.disabled);
+		setVisible(false);
+	}
+
+	// Where draw call counts come from. Null (or not a SpriteBatch) hides them.
+	public void setBatch(Batch b){
+		batch = b instanceof SpriteBatch ? (SpriteBatch) b : null;
+	}
+
+	public void toggle(){
+		setVisible(!isVisible());
+	}
+
+	public void beginFrame(float delta){
+		frameTimes[frameCount % RING] = delta * 1000f;
+		phaseTime[engine.phase().ordinal()] += delta;
+		sinceRefresh += delta;
+
+		workStart = System.nanoTime();
+	}
+
+	public void endFrame(){
+		workTimes[frameCount % RING] = (System.nanoTime() - workStart) / 1e6f;
+		frameCount++;
+
+		if(batch != null){
+			// Board's retained mode ends and restarts the batch, which resets renderCalls,
+			// so count the frame from the running total
+			totalRenderCalls = batch.totalRenderCalls;
+			renderCalls = totalRenderCalls - lastTotalRenderCalls;
+			lastTotalRenderCalls = totalRenderCalls;
+		}
+	}
+
+	public float getPrefWidth(){
+		return 300f;
+	}
+
+	public float getPrefHeight(){
+		return 20f * (5 + boards.length + PHASES.length);
+	}
+
+	public void draw(Batch b, float a){
+		if(sinceRefresh >= REFRESH_TIME){
+			refresh(sinceRefresh);
+			sinceRefresh = 0;
+		}
+
+		Color old = Assets.font.getColor();
+		float r = old.r, g = old.g, bl = old.b, al = old.a;
+
+		color.a = a;
+		Assets.font.setColor(color);
+		Assets.font.drawMultiLine(b, text, getX(), getY() + getHeight());
+		Assets.font.setColor(r, g, bl, al);
+	}
+
+	void refresh(float elapsed){
+		long heap = Gdx.app.getJavaHeap();
+		if(heap >= lastHeap && lastHeap != 0)
+			allocRate = (heap - lastHeap) / elapsed;
+		lastHeap = heap;
+
+		text.setLength(0);
+
+		text.append("frame ");
+		percentiles(frameTimes);
+		text.append('\n');
+
+		text.append("work  ");
+		percentiles(workTimes);
+		text.append('\n');
+
+		if(batch != null){
+			text.append("draws ").append(renderCalls).append(" (total ").append(totalRenderCalls).append(")\n");
+		}
+
+		for(Board<?,?> board : boards){
+			text.append(board.name).append(' ').append(board.cellsDrawn).append(" cells ")
+				.append(board.quadsDrawn).append(" quads\n");
+		}
+
+		text.append("heap  ").append(heap >> 20).append("MB +");
+		tenths(allocRate / (1 << 20));
+		text.append("MB/s\n");
+
+		for(int i = 0; i < PHASES.length; i++){
+			text.append(PHASES[i].name()).append(' ');
+			tenths(phaseTime[i]);
+			text.append("s\n");
+		}
+	}
+
+	// p50/p90/p99/max of a ring buffer
+	void percentiles(float[] ring){
+		int n = java.lang.Math.min(frameCount, RING);
+		if(n == 0){
+			text.append('-');
+			return;
+		}
+
+		System.arraycopy(ring, 0, sorted, 0, n);
+		java.util.Arrays.sort(sorted, 0, n);
+
+		tenths(sorted[(n - 1) / 2]);
+		text.append(' ');
+		tenths(sorted[(int) ((n - 1) * 0.9f)]);
+		text.append(' ');
+		tenths(sorted[(int) ((n - 1) * 0.99f)]);
+		text.append(' ');
+		tenths(sorted[n - 1]);
+		text.append("ms");
+	}
+
+	// StringBuilder.append(float) goes through Float.toString, which allocates
+	void tenths(float v){
+		int t = java.lang.Math.round(v * 10f);
+		text.append(t / 10).append('.').append(t % 10);
+	}
+}
@@ -2,18 +2,35 @@ package com.highestqualitygames.tiledemo;
 
 import java.util.List;
 
-import sun.security.ssl.Debug;
-
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.scenes.scene2d.ui.Widget;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.utils.StringBuilder;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
 
+import com.highestqualitygames.tiledemo.Assets.Role;
+import com.highestqualitygames.tiledemo.Assets.Tile;
+import com.highestqualitygames.tiledemo.GameEngine.PlayerState;
 import com.highestqualitygames.tiledemo.GameScreen.Player;
-import com.highestqualitygames.tiledemo.GameScreen.PlayerState;
 
-public class Players extends Widget {
+/*
+The player panels down the side of the screen.
+
+Each player's text (name, workers, score) is laid out once into a BitmapFontCache
+and redrawn from that. The engine tells us when a player changes, which only marks
+them dirty; the cache is rebuilt at the next draw. Layout changes dirty everyone,
+since the text positions depend on scale.
+ */
+
+public class Players extends Widget implements GameEngine.Listener {
 	List<Player> players;
-	List<PlayerState> playerStates;
+	GameEngine engine;
+	
+	final BitmapFontCache[] text;
+	final boolean[] dirty;
+	final StringBuilder number = new StringBuilder(16);
 
 	// The height we'd like to have to draw each player, also the size of playerBG
 	float prefPlayerHeight = 200f;
@@ -21,13 +38,48 @@ public class Players extends Widget {
 	
 	float scale = 1f;
 	
-	public Players(List<Player> p, List<PlayerState> ps){ 
+	public Players(List<Player> p, GameEngine e){ 
 		this.setTouchable(Touchable.childrenOnly);
 		players = p;
-		playerStates = ps;
+		engine = e;
+		
+		text = new BitmapFontCache[players.size()];
+		dirty = new boolean[players.size()];
+		for(int i = 0; i < text.length; i++){
+			text[i] = new BitmapFontCache(Assets.font);
+			dirty[i] = true;
+		}
+		
+		engine.addListener(this);
+		
 		this.setSize(this.getPrefWidth(), this.getPrefHeight());
 	}
 	
+	public void playerChanged(int player){
+		dirty[player] = true;
+	}
+	
+	public void moveApplied(int move){}
+	
+	// Lay out player i's text relative to the bottom left of their panel
+	void rebuild(int i){
+		PlayerState ps = engine.player(i);
+		BitmapFontCache c = text[i];
+		
+		c.setColor(Assets.font.getColor());
+		c.setText(players.get(i).name, 40f * scale, 50f * scale);
+		
+		number.setLength(0);
+		number.append("x ").append(ps.numWorkers);
+		c.addText(number, 110f * scale, 100f * scale);
+		
+		number.setLength(0);
+		number.append(ps.score);
+		c.addText(number, 110f * scale, 50f * scale);
+		
+		dirty[i] = false;
+	}
+	
 	public float getPrefHeight(){
 		return players.size() * prefPlayerHeight;
 	}
@@ -40,8 +92,15 @@ public class Players extends Widget {
 		super.layout();
 		scale = getHeight() / getPrefHeight();
 		
-		Debug.println("Players", String.format("Scale: %f (%f,%f)", scale, getScaleX(), getScaleY()));
-		Debug.println("Players", String.format("(%f,%f) @ (%f,%f) @ (%f,%f)", getWidth(), getHeight(), getX(), getY(), getOriginX(), getOriginY()));
+		for(int i = 0; i < dirty.length; i++){
+			dirty[i] = true;
+		}
+		
+		if(Gdx.app.getLogLevel() < Application.LOG_DEBUG)
+			return;
+		
+		Gdx.app.debug("Players", String.format("Scale: %f (%f,%f)", scale, getScaleX(), getScaleY()));
+		Gdx.app.debug("Players", String.format("(%f,%f) @ (%f,%f) @ (%f,%f)", getWidth(), getHeight(), getX(), getY(), getOriginX(), getOriginY()));
 	}
 
 	public void draw(Batch batch, float a) {
@@ -53,24 +112,26 @@ public class Players extends Widget {
 		batch.setColor(getColor());
 		
 		for(int i = players.size() - 1; i >= 0; i--){
-			PlayerState ps = playerStates.get(i);
+			PlayerState ps = engine.player(i);
+			Tile currentTile = Tile.of(ps.currentTile);
+			Role currentRole = Role.ofMove(ps.currentRole);
 			
 			batch.draw(Assets.playerBG, x, y, getOriginX(), getOriginY(), 300f, 200f, scale, scale, 0f);
 			
-			Assets.font.draw(batch, players.get(i).name, x + 40f * scale, y + 50f * scale);
+			if(dirty[i])
+				rebuild(i);
 			
-			batch.draw(players.get(i).worker.tr(), x + 10f * scale, y + 60f * scale, getOriginX(), getOriginY(), 100f, 100f, scale, scale, 0f);
+			text[i].setPosition(x, y);
+			text[i].draw(batch);
 			
-			Assets.font.draw(batch, String.format("x %d", playerStates.get(i).numWorkers), x + 110f * scale, y + 100f * scale);
-
-			Assets.font.draw(batch, String.format("%d", playerStates.get(i).score), x + 110f * scale, y + 50f * scale);
+			batch.draw(players.get(i).worker.tr(), x + 10f * scale, y + 60f * scale, getOriginX(), getOriginY(), 100f, 100f, scale, scale, 0f);
 
-			if(!ps.currentTile.IsEmpty()){
-				batch.draw(ps.currentTile.tr(), x + 200f * scale, y + 50f * scale, getOriginX(), getOriginY(), 100f, 100f, scale, scale, 0f);
+			if(!currentTile.IsEmpty()){
+				batch.draw(currentTile.tr(), x + 200f * scale, y + 50f * scale, getOriginX(), getOriginY(), 100f, 100f, scale, scale, 0f);
 			}
 
-			if(!ps.currentRole.IsEmpty()){
-				batch.draw(ps.currentRole.tr(), x + 200f * scale, y + 50f * scale, getOriginX(), getOriginY(), 100f, 100f, scale, scale, 0f);
+			if(!currentRole.IsEmpty()){
+				batch.draw(currentRole.tr(), x + 200f * scale, y + 50f * scale, getOriginX(), getOriginY(), 100f, 100f, scale, scale, 0f);
 			}
 			
 			y += scale * prefPlayerHeight;
@@ -0,0 +1,179 @@
+package com.highestqualitygames.tiledemo;
+
+/*
+Incremental disjoint-set index of connected same-tile regions on the tile board.
+
+Cells are indexed row major (row * cols + col) in the same "array" coordinates as
+GameEngine.tiles, NOT Board coordinates. Tiles and workers only ever get added, so
+regions only ever merge, which is exactly what union-find is good at.
+
+Each region root carries a bitmask of players with a worker somewhere in the region,
+and we keep a running count of such regions per tile type per player. Scoring asks
+"how many regions of tile T contain a worker of player P?", which is then just an
+array read.
+ */
+
+class RegionIndex {
+	final int cols, numPlayers, numTileTypes;
+	int rows;
+
+	// Per cell. tileType 0 is "no tile" (matches Tile.Empty's ordinal).
+	int[] parent, size;
+	byte[] tileType;
+	// Per root only - meaningless for non-root cells.
+	int[] playerMask;
+
+	// [tileType][player] = number of regions of tileType containing a worker of player
+	int[][] regionCount;
+
+	public RegionIndex(int cols, int numPlayers, int numTileTypes, int initialRows){
+		if(numPlayers > 32)
+			throw new Error("RegionIndex supports at most 32 players");
+
+		this.cols = cols;
+		this.numPlayers = numPlayers;
+		this.numTileTypes = numTileTypes;
+
+		rows = 0;
+		parent = new int[0];
+		size = new int[0];
+		tileType = new byte[0];
+		playerMask = new int[0];
+		regionCount = new int[numTileTypes][numPlayers];
+
+		ensureRows(initialRows);
+	}
+
+	public RegionIndex(RegionIndex o){
+		cols = o.cols;
+		numPlayers = o.numPlayers;
+		numTileTypes = o.numTileTypes;
+		rows = o.rows;
+
+		parent = o.parent.clone();
+		size = o.size.clone();
+		tileType = o.tileType.clone();
+		playerMask = o.playerMask.clone();
+
+		regionCount = new int[numTileTypes][];
+		for(int t = 0; t < numTileTypes; t++){
+			regionCount[t] = o.regionCount[t].clone();
+		}
+	}
+
+	// Become a copy of o, reusing our arrays if they're big enough. Cells past o's are
+	// cleared, as ensureRows would leave them - placeTile looks at the row above.
+	void set(RegionIndex o){
+		if(o.cols != cols || o.numPlayers != numPlayers || o.numTileTypes != numTileTypes)
+			throw new Error("Can't copy a differently shaped region index");
+
+		int cells = o.parent.length;
+		if(parent.length < cells){
+			parent = new int[cells];
+			size = new int[cells];
+			tileType = new byte[cells];
+			playerMask = new int[cells];
+		}
+
+		System.arraycopy(o.parent, 0, parent, 0, cells);
+		System.arraycopy(o.size, 0, size, 0, cells);
+		System.arraycopy(o.tileType, 0, tileType, 0, cells);
+		System.arraycopy(o.playerMask, 0, playerMask, 0, cells);
+		java.util.Arrays.fill(parent, cells, parent.length, 0);
+		java.util.Arrays.fill(size, cells, size.length, 0);
+		java.util.Arrays.fill(tileType, cells, tileType.length, (byte) 0);
+		java.util.Arrays.fill(playerMask, cells, playerMask.length, 0);
+		rows = parent.length / cols;
+
+		for(int t = 0; t < numTileTypes; t++){
+			System.arraycopy(o.regionCount[t], 0, regionCount[t], 0, numPlayers);
+		}
+	}
+
+	void ensureRows(int needed){
+		if(needed <= rows) return;
+
+		int newRows = java.lang.Math.max(needed, rows * 2);
+		int cells = newRows * cols;
+
+		parent = java.util.Arrays.copyOf(parent, cells);
+		size = java.util.Arrays.copyOf(size, cells);
+		tileType = java.util.Arrays.copyOf(tileType, cells);
+		playerMask = java.util.Arrays.copyOf(playerMask, cells);
+
+		rows = newRows;
+	}
+
+	int find(int cell){
+		// Path halving
+		while(parent[cell] != cell){
+			parent[cell] = parent[parent[cell]];
+			cell = parent[cell];
+		}
+		return cell;
+	}
+
+	// Record tile type (> 0) at row, col and merge with same-type neighbours.
+	void placeTile(int row, int col, int type){
+		if(type <= 0 || type >= numTileTypes)
+			throw new Error("Bad tile type for region index");
+
+		ensureRows(row + 2);
+
+		int cell = row * cols + col;
+		if(tileType[cell] != 0)
+			throw new Error("Tile placed twice in region index");
+
+		tileType[cell] = (byte) type;
+		parent[cell] = cell;
+		size[cell] = 1;
+		playerMask[cell] = 0;
+
+		if(row > 0) union(cell, cell - cols, type);
+		union(cell, cell + cols, type);
+		if(col > 0) union(cell, cell - 1, type);
+		if(col + 1 < cols) union(cell, cell + 1, type);
+	}
+
+	void union(int cell, int neighbour, int type){
+		if(tileType[neighbour] != type) return;
+
+		int a = find(cell), b = find(neighbour);
+		if(a == b) return;
+
+		if(size[a] < size[b]){
+			int t = a; a = b; b = t;
+		}
+
+		// Players present in both regions were counted twice and now share one region
+		int both = playerMask[a] & playerMask[b];
+		while(both != 0){
+			int player = Integer.numberOfTrailingZeros(both);
+			regionCount[type][player]--;
+			both &= both - 1;
+		}
+
+		parent[b] = a;
+		size[a] += size[b];
+		playerMask[a] |= playerMask[b];
+	}
+
+	void placeWorker(int row, int col, int player){
+		int cell = row * cols + col;
+
+		if(row >= rows || tileType[cell] == 0)
+			throw new Error("Worker placed on empty tile in region index");
+
+		int root = find(cell);
+		int bit = 1 << player;
+
+		if((playerMask[root] & bit) == 0){
+			playerMask[root] |= bit;
+			regionCount[tileType[cell]][player]++;
+		}
+	}
+
+	int regionsWithWorker(int player, int type){
+		return regionCount[type][player];
+	}
+}
@@ -0,0 +1,226 @@
+package com.highestqualitygames.tiledemo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.badlogic.gdx.Gdx;
+
+/*
+Binary log of a game: enough to play it again move for move.
+
+Since GameEngine is deterministic given its seed, a game is just its header plus
+the moves applied, in order. Everything is a zigzag varint, so a typical move is
+one byte and a whole game is a few hundred:
+
+	"TDRP" version
+	numPlayers queueSize seed
+	numPlayers x player type (GameScreen.PlayerType ordinal, for reference)
+	move move move ... (to the end of the file)
+
+Writer encodes moves into a batch in memory and hands every FLUSH_MOVES of them to
+a Background worker to write, so the render thread never waits on IO. GameScreen
+flushes the batch when it's paused, as Android may kill it after that, so a crash
+loses at most the last few moves and the log is usable up to there. Logs are named
+after the game's seed (replays/<hex seed>.tdr) so a resumed game appends to its own.
+
+Reader takes a whole log and hands the moves back to apply to newEngine() - the
+desktop Replay tool does just that, headlessly, as fast as the engine goes.
+ */
+
+class ReplayLog {
+	static final byte[] MAGIC = { 'T', 'D', 'R', 'P' };
+	static final int VERSION = 1;
+
+	/*
+	 * VARINTS
+	 */
+
+	static long zigzag(long v){
+		return (v << 1) ^ (v >> 63);
+	}
+
+	static long unzigzag(long v){
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	// Returns the new end of buf, which needs 10 bytes free
+	static int putVarint(byte[] buf, int pos, long v){
+		long z = zigzag(v);
+		while((z & ~0x7fL) != 0){
+			buf[pos++] = (byte) ((z & 0x7f) | 0x80);
+			z >>>= 7;
+		}
+		buf[pos++] = (byte) z;
+		return pos;
+	}
+
+	/*
+	 * WRITING
+	 */
+
+	static class Writer {
+		// Moves batched up before they're handed off to write
+		static final int FLUSH_MOVES = 16;
+
+		final OutputStream out;
+		final Background.Workers thread;
+		// Encoded but not yet handed off. Only touched by the caller.
+		final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+		final byte[] buf = new byte[10];
+		int batchMoves;
+		// Only touched on thread
+		IOException failure;
+
+		// Carry on a log that already has its header (a resumed game)
+		public Writer(OutputStream out){
+			this.out = out;
+			thread = Background.platform.newWorkers("replay-log", 1, false);
+		}
+
+		// Start the log of a game that's about to begin
+		public Writer(OutputStream out, GameEngine engine, int queueSize, int[] playerTypes){
+			this(out);
+
+			batch.write(MAGIC, 0, MAGIC.length);
+			batch.write(VERSION);
+			batch.write(buf, 0, putVarint(buf, 0, engine.numPlayers));
+			batch.write(buf, 0, putVarint(buf, 0, queueSize));
+			batch.write(buf, 0, putVarint(buf, 0, engine.seed));
+			for(int type : playerTypes){
+				batch.write(buf, 0, putVarint(buf, 0, type));
+			}
+			flush();
+		}
+
+		// Log move. Never blocks on IO.
+		public void record(int move){
+			batch.write(buf, 0, putVarint(buf, 0, move));
+
+			if(++batchMoves >= FLUSH_MOVES)
+				flush();
+		}
+
+		// Hand everything recorded so far off to be written out. Done when it's on disk,
+		// with everything before it; get() throws if any of it couldn't be written.
+		public Background.Pending<Void> flush(){
+			final byte[] bytes = batch.toByteArray();
+			batch.reset();
+			batchMoves = 0;
+
+			return thread.submit(new Background.Task<Void>(){
+				public Void run(){
+					if(failure == null){
+						try {
+							out.write(bytes);
+							out.flush();
+						}
+						catch(IOException e){
+							failure = e;
+						}
+					}
+
+					if(failure != null)
+						throw new Error("Writing replay log failed", failure);
+
+					return null;
+				}
+			});
+		}
+
+		// Write out what's left and close the stream, without waiting for it
+		public void close(){
+			flush();
+			thread.submit(new Background.Task<Void>(){
+				public Void run(){
+					try {
+						out.close();
+					}
+					catch(IOException e){
+						if(failure == null) failure = e;
+					}
+
+					if(failure != null)
+						Gdx.app.error("ReplayLog", "Replay log incomplete", failure);
+
+					return null;
+				}
+			});
+			thread.shutdown();
+		}
+	}
+
+	/*
+	 * READING
+	 */
+
+	static class Reader {
+		final byte[] log;
+		int pos;
+
+		public final int numPlayers, queueSize;
+		public final long seed;
+		public final int[] playerTypes;
+		// Index of the next move
+		int moveNumber;
+
+		public Reader(byte[] log){
+			this.log = log;
+
+			for(int i = 0; i < MAGIC.length; i++){
+				if(i >= log.length || log[i] != MAGIC[i])
+					throw new Error("Not a replay log");
+			}
+			pos = MAGIC.length;
+
+			if(pos >= log.length || log[pos++] != VERSION)
+				throw new Error("Unknown replay log version");
+
+			numPlayers = (int) readVarint();
+			queueSize = (int) readVarint();
+			seed = readVarint();
+
+			playerTypes = new int[numPlayers];
+			for(int i = 0; i < numPlayers; i++){
+				playerTypes[i] = (int) readVarint();
+			}
+		}
+
+		public static Reader read(InputStream in) throws IOException {
+			ByteArrayOutputStream all = new ByteArrayOutputStream();
+			byte[] b = new byte[4096];
+			for(int n; (n = in.read(b)) != -1; ){
+				all.write(b, 0, n);
+			}
+			return new Reader(all.toByteArray());
+		}
+
+		// A fresh engine in the logged game's starting position
+		public GameEngine newEngine(){
+			return new GameEngine(numPlayers, queueSize, seed);
+		}
+
+		public boolean hasNext(){
+			return pos < log.length;
+		}
+
+		public int next(){
+			moveNumber++;
+			return (int) readVarint();
+		}
+
+		long readVarint(){
+			long z = 0;
+			for(int shift = 0; ; shift += 7){
+				if(pos >= log.length || shift > 63)
+					throw new Error("Truncated replay log");
+
+				byte b = log[pos++];
+				z |= (long) (b & 0x7f) << shift;
+				if(b >= 0) break;
+			}
+			return unzigzag(z);
+		}
+	}
+}
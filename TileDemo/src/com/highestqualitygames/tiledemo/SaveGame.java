@@ -0,0 +1,45 @@
+package com.highestqualitygames.tiledemo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/*
+The game in progress, saved when the app is paused so Android killing us in the
+background doesn't lose it.
+
+The file is a GameEngine snapshot, written into a buffer and out in one write: a
+few hundred bytes, no serialization framework and no fsync - once write() returns
+the OS has it even if our process gets killed, which is the case that matters.
+Cheap enough to do on every pause(). It goes through FileHandle, not a channel or
+a memory mapping, so there's nothing left mapped to stop Windows replacing the
+file next time, and it builds for GWT too.
+ */
+
+class SaveGame {
+	static void write(GameEngine engine, FileHandle file){
+		ByteBuffer b = ByteBuffer.allocate(engine.snapshotBytes());
+		engine.writeSnapshot(b);
+		file.writeBytes(b.array(), false);
+	}
+
+	// The saved game, or null if there isn't one
+	static GameEngine read(FileHandle file) throws IOException {
+		if(!file.exists())
+			return null;
+
+		byte[] bytes = file.readBytes();
+
+		try {
+			return new GameEngine(ByteBuffer.wrap(bytes));
+		}
+		// Anything wrong with the contents
+		catch(RuntimeException e){
+			throw new IOException("Bad save file " + file, e);
+		}
+		catch(Error e){
+			throw new IOException("Bad save file " + file, e);
+		}
+	}
+}
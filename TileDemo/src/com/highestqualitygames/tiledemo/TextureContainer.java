@@ -0,0 +1,216 @@
+package com.highestqualitygames.tiledemo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureLoader.TextureParameter;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+
+/*
+An atlas page compiled ahead of time (.tdt): RGBA8888 pixels ready for
+glTexImage2D, with the whole mipmap chain, so loading is a straight read and
+upload - no PNG to inflate and unfilter, no Pixmap, no mipmaps to generate.
+
+	"TDTX" version width height levels     (big endian ints)
+	level 0 pixels, level 1 pixels, ...    (max(1, width >> l) x max(1, height >> l) x 4 bytes)
+
+The desktop TextureCompiler writes them from the packer's PNG pages; Loader reads
+them for the AssetManager, which picks it for the .tdt suffix.
+ */
+
+class TextureContainer implements TextureData {
+	static final byte[] MAGIC = { 'T', 'D', 'T', 'X' };
+	static final int VERSION = 1;
+	static final String SUFFIX = ".tdt";
+
+	final FileHandle file;
+	int width, height, levels;
+	// Every level's pixels, between prepare() and the upload
+	ByteBuffer pixels;
+
+	TextureContainer(FileHandle file){
+		this.file = file;
+	}
+
+	static int levelWidth(int width, int level){
+		return java.lang.Math.max(1, width >> level);
+	}
+
+	/*
+	 * WRITING (TextureCompiler)
+	 */
+
+	// levels[l] is level l, RGBA, levelWidth(width, l) x levelWidth(height, l)
+	static void write(OutputStream out, int width, int height, byte[][] levels) throws IOException {
+		DataOutputStream d = new DataOutputStream(out);
+		d.write(MAGIC);
+		d.writeInt(VERSION);
+		d.writeInt(width);
+		d.writeInt(height);
+		d.writeInt(levels.length);
+
+		for(int l = 0; l < levels.length; l++){
+			if(levels[l].length != levelWidth(width, l) * levelWidth(height, l) * 4)
+				throw new Error("Mipmap level " + l + " is the wrong size");
+			d.write(levels[l]);
+		}
+		d.flush();
+	}
+
+	/*
+	 * READING
+	 */
+
+	public void prepare(){
+		if(pixels != null)
+			throw new Error("Texture container " + file + " already prepared");
+
+		DataInputStream in = new DataInputStream(file.read());
+
+		try {
+			try {
+				read(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch(IOException e){
+			release();
+			throw new Error("Can't read texture container " + file, e);
+		}
+		catch(Error e){
+			release();
+			throw e;
+		}
+	}
+
+	// The header says how big it is - file lengths aren't known for compressed Android assets
+	void read(DataInputStream in) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		for(int i = 0; i < MAGIC.length; i++){
+			if(magic[i] != MAGIC[i])
+				throw new Error("Not a texture container: " + file);
+		}
+		if(in.readInt() != VERSION)
+			throw new Error("Unknown texture container version: " + file);
+
+		width = in.readInt();
+		height = in.readInt();
+		levels = in.readInt();
+
+		int size = 0;
+		for(int l = 0; l < levels; l++){
+			size += levelWidth(width, l) * levelWidth(height, l) * 4;
+		}
+
+		// Read straight into the buffer GL uploads from: the file is the only copy
+		pixels = BufferUtils.newUnsafeByteBuffer(size);
+		byte[] chunk = new byte[64 * 1024];
+		while(pixels.hasRemaining()){
+			int n = in.read(chunk, 0, java.lang.Math.min(chunk.length, pixels.remaining()));
+			if(n == -1)
+				throw new Error("Texture container " + file + " is truncated");
+			pixels.put(chunk, 0, n);
+		}
+		if(in.read() != -1)
+			throw new Error("Texture container " + file + " is longer than it says");
+
+		pixels.flip();
+	}
+
+	public void consumeCustomData(int target){
+		if(pixels == null)
+			throw new Error("Texture container " + file + " not prepared");
+
+		int pos = 0;
+		for(int l = 0; l < levels; l++){
+			int w = levelWidth(width, l), h = levelWidth(height, l);
+			pixels.limit(pos + w * h * 4);
+			pixels.position(pos);
+			Gdx.gl.glTexImage2D(target, l, GL20.GL_RGBA, w, h, 0, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, pixels);
+			pos += w * h * 4;
+		}
+
+		// Managed: prepare() reads it again after a context loss
+		release();
+	}
+
+	void release(){
+		if(pixels != null)
+			BufferUtils.disposeUnsafeByteBuffer(pixels);
+		pixels = null;
+	}
+
+	public TextureDataType getType(){ return TextureDataType.Custom; }
+	public boolean isPrepared(){ return pixels != null; }
+	public int getWidth(){ return width; }
+	public int getHeight(){ return height; }
+	public Format getFormat(){ return Format.RGBA8888; }
+	public boolean useMipMaps(){ return levels > 1; }
+	public boolean isManaged(){ return true; }
+
+	public Pixmap consumePixmap(){ throw new Error("Texture containers upload themselves"); }
+	public boolean disposePixmap(){ throw new Error("Texture containers upload themselves"); }
+
+	/*
+	 * LOADER
+	 */
+
+	// Stands in for TextureLoader for .tdt files, parameters and context loss reloads included.
+	// The file's read and checked on the loading thread; only the upload's on the GL one.
+	static class Loader extends AsynchronousAssetLoader<Texture, TextureParameter> {
+		TextureData data;
+		Texture texture;
+
+		public Loader(FileHandleResolver resolver){
+			super(resolver);
+		}
+
+		public void loadAsync(AssetManager manager, String fileName, FileHandle file, TextureParameter parameter){
+			texture = parameter == null ? null : parameter.texture;
+			data = parameter == null || parameter.textureData == null ? new TextureContainer(file) : parameter.textureData;
+
+			if(!data.isPrepared())
+				data.prepare();
+		}
+
+		public Texture loadSync(AssetManager manager, String fileName, FileHandle file, TextureParameter parameter){
+			Texture t = texture;
+			if(t != null)
+				t.load(data);
+			else
+				t = new Texture(data);
+
+			if(parameter != null){
+				t.setFilter(parameter.minFilter, parameter.magFilter);
+				t.setWrap(parameter.wrapU, parameter.wrapV);
+			}
+
+			data = null;
+			texture = null;
+			return t;
+		}
+
+		@SuppressWarnings("rawtypes")
+		public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, TextureParameter parameter){
+			return null;
+		}
+	}
+}
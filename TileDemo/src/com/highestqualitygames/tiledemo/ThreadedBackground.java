@@ -0,0 +1,76 @@
+package com.highestqualitygames.tiledemo;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/*
+Background on java.util.concurrent thread pools, for the desktop and Android
+launchers. Kept out of the GWT build by TileDemoGame.gwt.xml.
+ */
+
+public class ThreadedBackground extends Background {
+	Workers newWorkers(final String name, int threads, final boolean lowPriority){
+		final ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				if(lowPriority)
+					t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			}
+		});
+
+		return new Workers(){
+			public <T> Pending<T> submit(final Task<T> task){
+				final Future<T> f = pool.submit(new Callable<T>(){
+					public T call(){
+						return task.run();
+					}
+				});
+
+				return new Pending<T>(){
+					public boolean isDone(){
+						return f.isDone();
+					}
+
+					public T get(){
+						try {
+							return f.get();
+						}
+						catch(ExecutionException e){
+							throw new Error("Background task failed", e.getCause());
+						}
+						catch(CancellationException e){
+							throw new Error("Background task cancelled", e);
+						}
+						catch(InterruptedException e){
+							Thread.currentThread().interrupt();
+							throw new Error("Interrupted waiting for a background task", e);
+						}
+					}
+
+					public void cancel(){
+						f.cancel(true);
+					}
+				};
+			}
+
+			public void shutdown(){
+				pool.shutdown();
+			}
+
+			public void shutdownNow(){
+				pool.shutdownNow();
+			}
+		};
+	}
+
+	int cores(){
+		return Runtime.getRuntime().availableProcessors();
+	}
+}
@@ -1,19 +1,92 @@
 package com.highestqualitygames.tiledemo;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 import com.highestqualitygames.tiledemo.GameScreen;
 import com.highestqualitygames.tiledemo.GameScreen.*;
 import com.highestqualitygames.tiledemo.Assets.*;
 
 class TileDemoGame extends com.badlogic.gdx.Game {
+	// A replay log to play back instead of a new game, or null
+	String replayPath;
+	
+	List<Player> players;
+	
+	// Startup timing, System.nanoTime. The launcher says when it started if it can.
+	final long launchNanos;
+	long createNanos, loadedNanos;
+	boolean startupReported;
+	
+	public TileDemoGame(){
+		this(null, System.nanoTime());
+	}
+	
+	public TileDemoGame(String replayPath){
+		this(replayPath, System.nanoTime());
+	}
+	
+	public TileDemoGame(String replayPath, long launchNanos){
+		this(replayPath, launchNanos, Background.platform);
+	}
+	
+	// Launchers with threads pass a ThreadedBackground for the CPU players to think on
+	public TileDemoGame(String replayPath, long launchNanos, Background background){
+		this.replayPath = replayPath;
+		this.launchNanos = launchNanos;
+		Background.platform = background;
+	}
+	
 	public void create() {
+		createNanos = System.nanoTime();
+		
+		Assets.init();
+		
+		// The loading screen's reference, given up once the first GameScreen has its own
+		Assets.acquire();
+		
+		final LoadingScreen loading = new LoadingScreen(Assets.manager, new Runnable(){
+			public void run(){
+				loadedNanos = System.nanoTime();
+				Assets.loaded();
+				startGame();
+			}
+		});
+		
+		this.setScreen(loading);
+	}
+	
+	void startGame() {
+		Screen loading = getScreen();
+		
 		// Start game with mixed player list...
-		this.setScreen(new GameScreen(
-				Arrays.asList(new Player(Worker.Black, "Bob", PlayerType.LocalCPU),
+		players = Arrays.asList(new Player(Worker.Black, "Bob", PlayerType.LocalCPU),
 						new Player(Worker.Orange, "Jane", PlayerType.LocalHuman),
-						new Player(Worker.Teal, "Hilel", PlayerType.LocalCPU),
-						new Player(Worker.Purple, "Marius", PlayerType.LocalCPU))));
+						new Player(Worker.Teal, "Hilel", PlayerType.LocalMCTS),
+						new Player(Worker.Purple, "Marius", PlayerType.LocalCPU));
+		
+		GameEngine saved;
+		
+		if(replayPath != null){
+			ReplayLog.Reader replay = readReplay(replayPath);
+			play(new GameScreen(players.subList(0, replay.numPlayers), replay));
+		}
+		// Pick up where we left off if Android killed us mid game
+		else if((saved = readSave()) != null && saved.numPlayers == players.size()){
+			play(new GameScreen(players, saved));
+		}
+		else {
+			play(new GameScreen(players));
+		}
+		
+		loading.dispose();
+		Assets.release();
 		
 //		// Start game with all human player list...
 //		this.setScreen(new GameScreen(
@@ -21,4 +94,76 @@ class TileDemoGame extends com.badlogic.gdx.Game {
 //						new Player(Worker.Orange, "Jane", PlayerType.LocalHuman),
 //						new Player(Worker.Teal, "Hilel", PlayerType.LocalHuman))));
 	}
+	
+	void play(GameScreen game){
+		game.rematch = rematch;
+		setScreen(game);
+	}
+	
+	// Same players, new game. The new screen acquires the assets before the old one
+	// releases them, so nothing's unloaded or uploaded again in between.
+	final Runnable rematch = new Runnable(){
+		public void run(){
+			Screen old = getScreen();
+			long start = System.nanoTime();
+			int textures = Texture.getNumManagedTextures();
+			
+			play(new GameScreen(players));
+			old.dispose();
+			
+			Gdx.app.log("TileDemoGame", String.format("Rematch set up in %dms, managed textures %d -> %d",
+					(System.nanoTime() - start) / 1000000, textures, Texture.getNumManagedTextures()));
+		}
+	};
+	
+	public void render() {
+		// Only has anything to do after a context loss, when the reloads are queued
+		if(!(getScreen() instanceof LoadingScreen) && !Assets.manager.update())
+			Gdx.graphics.requestRendering();
+		
+		super.render();
+		
+		// The first GameScreen frame is the first one anybody can play
+		if(!startupReported && getScreen() instanceof GameScreen){
+			startupReported = true;
+			long now = System.nanoTime();
+			
+			Gdx.app.log("Startup", String.format("First interactive frame %dms after launch (to create %dms, loading %dms, game setup and first frame %dms)",
+					(now - launchNanos) / 1000000, (createNanos - launchNanos) / 1000000, 
+					(loadedNanos - createNanos) / 1000000, (now - loadedNanos) / 1000000));
+		}
+	}
+	
+	public void dispose() {
+		super.dispose();
+		
+		// Game.dispose() only hides the screen
+		if(getScreen() != null)
+			getScreen().dispose();
+		Assets.manager.dispose();
+	}
+	
+	GameEngine readSave(){
+		try {
+			return SaveGame.read(Gdx.files.local(GameScreen.SAVE_FILE));
+		}
+		catch(IOException e){
+			Gdx.app.error("TileDemoGame", "Ignoring saved game", e);
+			return null;
+		}
+		// Couldn't read it, or no local files here at all
+		catch(GdxRuntimeException e){
+			Gdx.app.error("TileDemoGame", "Ignoring saved game", e);
+			return null;
+		}
+	}
+	
+	ReplayLog.Reader readReplay(String path){
+		try {
+			return ReplayLog.Reader.read(Gdx.files.absolute(path).read());
+		}
+		catch(IOException e){
+			throw new Error("Can't read replay " + path, e);
+		}
+	}
 }
\ No newline at end of file
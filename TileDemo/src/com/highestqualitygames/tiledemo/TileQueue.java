@@ -0,0 +1,156 @@
+package com.highestqualitygames.tiledemo;
+
+/*
+The tile queue: a ring buffer of tile codes over a seeded generator.
+
+Tiles are only generated when something looks at them (get), so the queue can be
+as long as you like and costs as much as the furthest anyone has looked ahead -
+usually the front few for choosing plus whatever the tileQueue Board window shows.
+
+The generator is SplitMix64, whose whole state is one long, so the queue can be
+saved and restored exactly from (materialized tiles, remaining, state).
+
+Taking a tile leaves an EMPTY gap; removeEmpty(n) closes the gaps in the front n by
+packing the survivors to the back of that window and moving head past the rest, so
+it's O(n) however long the queue is.
+ */
+
+class TileQueue {
+	// Tiles materialized in the ring, from head on
+	byte[] ring;
+	int head, count;
+	// Tiles still to be generated, and the generator
+	int remaining;
+	long state;
+
+	public TileQueue(int size, long seed){
+		ring = new byte[16];
+		head = 0;
+		count = 0;
+		remaining = size;
+		state = seed;
+	}
+
+	public TileQueue(TileQueue o){
+		ring = o.ring.clone();
+		head = o.head;
+		count = o.count;
+		remaining = o.remaining;
+		state = o.state;
+	}
+
+	// Become a copy of o, reusing ring if it's big enough
+	void set(TileQueue o){
+		int capacity = ring.length;
+		while(capacity < o.count) capacity *= 2;
+		if(capacity != ring.length)
+			ring = new byte[capacity];
+
+		// Rings of different sizes wrap differently, so unwrap o's to the start of ours
+		for(int i = 0; i < o.count; i++){
+			ring[i] = o.ring[(o.head + i) & (o.ring.length - 1)];
+		}
+		head = 0;
+		count = o.count;
+		remaining = o.remaining;
+		state = o.state;
+	}
+
+	// Snapshot: count remaining state, then the count materialized tiles
+	int snapshotBytes(){
+		return 4 + 4 + 8 + count;
+	}
+
+	void writeSnapshot(java.nio.ByteBuffer b){
+		b.putInt(count);
+		b.putInt(remaining);
+		b.putLong(state);
+
+		for(int i = 0; i < count; i++){
+			b.put(ring[(head + i) & (ring.length - 1)]);
+		}
+	}
+
+	public TileQueue(java.nio.ByteBuffer b){
+		count = b.getInt();
+		remaining = b.getInt();
+		state = b.getLong();
+
+		int capacity = 16;
+		while(capacity < count) capacity *= 2;
+
+		ring = new byte[capacity];
+		head = 0;
+		b.get(ring, 0, count);
+	}
+
+	int size(){
+		return count + remaining;
+	}
+
+	byte get(int i){
+		materialize(i + 1);
+		return ring[(head + i) & (ring.length - 1)];
+	}
+
+	// Take tile i, leaving a gap
+	byte take(int i){
+		byte t = get(i);
+		ring[(head + i) & (ring.length - 1)] = GameEngine.EMPTY;
+		return t;
+	}
+
+	// Close up EMPTY gaps in the front n tiles, keeping the rest in order
+	void removeEmpty(int n){
+		n = java.lang.Math.min(n, size());
+		materialize(n);
+
+		int mask = ring.length - 1;
+		int to = n;
+		for(int from = n - 1; from >= 0; from--){
+			byte t = ring[(head + from) & mask];
+			if(t != GameEngine.EMPTY)
+				ring[(head + --to) & mask] = t;
+		}
+
+		// to is now the number of gaps
+		head = (head + to) & mask;
+		count -= to;
+	}
+
+	// Make sure the front n tiles exist
+	void materialize(int n){
+		if(n > size())
+			throw new Error("Tile queue index " + (n - 1) + " past the end (" + size() + ")");
+
+		while(count < n){
+			if(count == ring.length)
+				grow();
+
+			ring[(head + count) & (ring.length - 1)] = next();
+			count++;
+			remaining--;
+		}
+	}
+
+	void grow(){
+		byte[] r = new byte[ring.length * 2];
+		for(int i = 0; i < count; i++){
+			r[i] = ring[(head + i) & (ring.length - 1)];
+		}
+		ring = r;
+		head = 0;
+	}
+
+	// SplitMix64, then a random non-empty tile
+	byte next(){
+		state += 0x9e3779b97f4a7c15L;
+		long z = state;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		z ^= z >>> 31;
+
+		// + 1 dodges the Empty tile
+		return (byte) ((z >>> 1) % (GameEngine.NUM_TILE_TYPES - 1) + 1);
+	}
+}
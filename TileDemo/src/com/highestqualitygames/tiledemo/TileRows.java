@@ -0,0 +1,134 @@
+package com.highestqualitygames.tiledemo;
+
+/*
+Append-only store of tile board rows, one byte tile code per cell.
+
+Rows live in fixed size chunks of CHUNK_ROWS rows (row major within the chunk), and
+a chunk is only allocated when addRow runs into it, so memory follows how long the
+game actually goes on and there's no limit on the number of rows.
+
+Only the last row can be written. Every other row is finished with, which lets
+copies share all the full chunks and only clone the last one - cheap copies for the
+AI, however long the board gets. set() goes one better for the AI's playouts: it
+copies the last chunk into one this TileRows already owns, and keeps the chunks it
+allocated past that for rows added later, so restoring a position allocates nothing.
+
+A row "view" is just the chunk holding it plus the offset of its first cell:
+	byte[] c = rows.chunk(row); int o = rows.offset(row);
+	c[o] ... c[o + cols - 1]
+ */
+
+class TileRows {
+	static final int CHUNK_SHIFT = 4;
+	static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+	final int cols;
+	int rows;
+	byte[][] chunks;
+	// The chunks only this writes, kept to reuse by set(). A full chunk handed to a copy
+	// is dropped from here, so it's never rewritten under the copy.
+	byte[][] own;
+
+	public TileRows(int cols){
+		this.cols = cols;
+		rows = 0;
+		chunks = new byte[4][];
+		own = new byte[4][];
+	}
+
+	public TileRows(TileRows o){
+		cols = o.cols;
+		rows = o.rows;
+		chunks = o.chunks.clone();
+		own = new byte[chunks.length][];
+
+		// Full chunks never change again so they're shared; the one being written isn't,
+		// and o's spare ones past it are o's to reuse
+		int last = (rows - 1) >> CHUNK_SHIFT;
+		for(int c = 0; c < chunks.length; c++){
+			if(c < last)
+				o.disown(c);
+			else
+				chunks[c] = own[c] = c == last ? chunks[c].clone() : null;
+		}
+	}
+
+	// Become a copy of o, reusing our own chunks
+	void set(TileRows o){
+		if(o.cols != cols)
+			throw new Error("Can't copy rows " + o.cols + " wide into " + cols);
+
+		rows = o.rows;
+		if(chunks.length < o.chunks.length){
+			chunks = java.util.Arrays.copyOf(chunks, o.chunks.length);
+			own = java.util.Arrays.copyOf(own, o.chunks.length);
+		}
+
+		int last = (rows - 1) >> CHUNK_SHIFT;
+		for(int c = 0; c < chunks.length; c++){
+			if(c < last){
+				chunks[c] = o.chunks[c];
+				o.disown(c);
+			}
+			else if(c == last){
+				if(own[c] == null)
+					own[c] = new byte[CHUNK_ROWS * cols];
+				System.arraycopy(o.chunks[c], 0, own[c], 0, own[c].length);
+				chunks[c] = own[c];
+			}
+			// Spare, with whatever was in it - addRow clears rows as it hands them out
+			else {
+				chunks[c] = own[c];
+			}
+		}
+	}
+
+	void disown(int c){
+		if(own[c] == chunks[c])
+			own[c] = null;
+	}
+
+	int rows(){
+		return rows;
+	}
+
+	// Add an all EMPTY row, returning its index
+	int addRow(){
+		int chunk = rows >> CHUNK_SHIFT;
+
+		if(chunk >= chunks.length){
+			chunks = java.util.Arrays.copyOf(chunks, chunks.length * 2);
+			own = java.util.Arrays.copyOf(own, chunks.length);
+		}
+
+		if(chunks[chunk] == null)
+			chunks[chunk] = own[chunk] = new byte[CHUNK_ROWS * cols];
+		else
+			java.util.Arrays.fill(chunks[chunk], offset(rows), offset(rows) + cols, GameEngine.EMPTY);
+
+		return rows++;
+	}
+
+	byte get(int row, int col){
+		if(row >= rows)
+			throw new Error("Row " + row + " past the end of the board");
+
+		return chunks[row >> CHUNK_SHIFT][(row & CHUNK_MASK) * cols + col];
+	}
+
+	void set(int row, int col, byte t){
+		if(row != rows - 1)
+			throw new Error("Only the last row of the board can change");
+
+		chunks[row >> CHUNK_SHIFT][(row & CHUNK_MASK) * cols + col] = t;
+	}
+
+	byte[] chunk(int row){
+		return chunks[row >> CHUNK_SHIFT];
+	}
+
+	int offset(int row){
+		return (row & CHUNK_MASK) * cols;
+	}
+}
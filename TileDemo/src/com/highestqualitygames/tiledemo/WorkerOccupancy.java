@@ -0,0 +1,73 @@
+package com.highestqualitygames.tiledemo;
+
+/*
+Which players have a worker on which cells of the tile board.
+
+One int bitmask per cell (bit p set = player p has a worker there), stored row major
+in a single primitive array in "array" coordinates (same as GameEngine.tiles, NOT
+Board coordinates). Grows by doubling as rows are added, so memory follows board
+area rather than players x area.
+
+GameEngine.playersAt (the tile board's pieces, the AI's copies) and snapshots read
+it. Role scoring doesn't: RegionIndex keeps which players are in each region as
+workers go down, which is what scoring actually asks.
+ */
+
+class WorkerOccupancy {
+	final int cols, numPlayers;
+	int rows;
+	int[] masks;
+
+	public WorkerOccupancy(int cols, int numPlayers, int initialRows){
+		if(numPlayers > 32)
+			throw new Error("WorkerOccupancy supports at most 32 players");
+
+		this.cols = cols;
+		this.numPlayers = numPlayers;
+		rows = 0;
+		masks = new int[0];
+
+		ensureRows(initialRows);
+	}
+
+	public WorkerOccupancy(WorkerOccupancy o){
+		cols = o.cols;
+		numPlayers = o.numPlayers;
+		rows = o.rows;
+		masks = o.masks.clone();
+	}
+
+	// Become a copy of o, reusing masks if it's big enough
+	void set(WorkerOccupancy o){
+		if(o.cols != cols)
+			throw new Error("Can't copy occupancy " + o.cols + " wide into " + cols);
+
+		if(masks.length < o.masks.length)
+			masks = new int[o.masks.length];
+
+		System.arraycopy(o.masks, 0, masks, 0, o.masks.length);
+		java.util.Arrays.fill(masks, o.masks.length, masks.length, 0);
+		rows = masks.length / cols;
+	}
+
+	void ensureRows(int needed){
+		if(needed <= rows) return;
+
+		rows = java.lang.Math.max(needed, rows * 2);
+		masks = java.util.Arrays.copyOf(masks, rows * cols);
+	}
+
+	void place(int row, int col, int player){
+		ensureRows(row + 1);
+		masks[row * cols + col] |= 1 << player;
+	}
+
+	// Bitmask of players on row, col. 0 for rows never touched.
+	int playersAt(int row, int col){
+		return row < rows ? masks[row * cols + col] : 0;
+	}
+
+	boolean occupied(int row, int col, int player){
+		return (playersAt(row, col) & (1 << player)) != 0;
+	}
+}
@@ -1,2 +1,11 @@
 #!/bin/sh
+# The desktop project needs building first for the tools
+TOOLS=TileDemo-desktop/bin:TileDemo/bin:TileDemo/libs/gdx.jar
+
+# libgdx's default font, repacked to fit alongside the tiles (see FontCompiler)
+java -cp $TOOLS com.highestqualitygames.tiledemo.FontCompiler com/badlogic/gdx/utils/arial-15.fnt 112 TileDemo-android/assets/data/arial-15.fnt images/images/arial-15.png
+
 java -jar packer.jar images/images TileDemo-android/assets/data images
+
+# Precompiled pages with mipmaps next to the PNGs (see TextureCompiler)
+java -cp $TOOLS com.highestqualitygames.tiledemo.TextureCompiler TileDemo-android/assets/data/images.atlas